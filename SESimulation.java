@@ -1,11 +1,43 @@
+import batch.BatchRunner;
+import batch.ScenarioResult;
 import io.InputInfo;
 import io.InputReader;
+import stats.ResultsReport;
+import system.MatchingMode;
 import system.SESystem;
 
+import javax.management.JMException;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
 
 
 public class SESimulation {
+    // -Dcheckpoint=<file> saves a checkpoint every -Dcheckpoint.interval rounds and resumes from it if it exists
+    private static final String CHECKPOINT_PROPERTY = "checkpoint";
+    private static final String CHECKPOINT_INTERVAL_PROPERTY = "checkpoint.interval";
+    private static final int DEFAULT_CHECKPOINT_INTERVAL = 1000;
+    // -Dresults.json=<file> and -Dresults.csv=<file> export the final statistics
+    private static final String RESULTS_JSON_PROPERTY = "results.json";
+    private static final String RESULTS_CSV_PROPERTY = "results.csv";
+    // -Dmetrics.interval=N prints the round metrics every N rounds, -Dmetrics.jmx=true shows them over JMX
+    private static final String METRICS_INTERVAL_PROPERTY = "metrics.interval";
+    private static final String METRICS_JMX_PROPERTY = "metrics.jmx";
+    // -Ddecisions.parallel=true lets the investors decide in parallel, on -Dthreads=N threads (all processors by default)
+    private static final String PARALLEL_DECISIONS_PROPERTY = "decisions.parallel";
+    private static final String THREADS_PROPERTY = "threads";
+    // -Dseed=N repeats a run, whose seed is printed with the input; -Dmatching.mode=PARALLEL matches the books in parallel
+    private static final String SEED_PROPERTY = "seed";
+    private static final String MATCHING_MODE_PROPERTY = "matching.mode";
+
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("--batch")) {
+            runBatch(args);
+            return;
+        }
+
         InputInfo inputInfo = null;
         try {
             inputInfo = InputReader.readInput(args);
@@ -14,12 +46,126 @@ public class SESimulation {
             System.out.println(e.getMessage());
             System.exit(1);
         }
+        applyRunProperties(inputInfo);
 
         System.out.println(inputInfo);
         System.out.println("\nSTARTING SIMULATION\n");
 
-        SESystem seSystem = new SESystem(inputInfo);
-        seSystem.run();
-        seSystem.printResults();
+        ResultsReport report;
+        // Closed however the run ends, so that the worker pool never outlives it
+        try (SESystem seSystem = new SESystem(inputInfo)) {
+            String checkpoint = System.getProperty(CHECKPOINT_PROPERTY);
+            if (checkpoint != null) {
+                Path checkpointPath = Path.of(checkpoint);
+                if (Files.exists(checkpointPath)) {
+                    try {
+                        seSystem.restoreCheckpoint(checkpointPath);
+                    } catch (IOException e) {
+                        System.out.println("Cannot resume from " + checkpoint + ": " + e.getMessage());
+                        System.exit(1);
+                    }
+                    System.out.println("Resuming from round " + seSystem.getCurrentRound() + "\n");
+                }
+                seSystem.enableCheckpoints(checkpointPath,
+                        Integer.getInteger(CHECKPOINT_INTERVAL_PROPERTY, DEFAULT_CHECKPOINT_INTERVAL));
+            }
+            Integer metricsInterval = Integer.getInteger(METRICS_INTERVAL_PROPERTY);
+            if (metricsInterval != null) {
+                seSystem.enableMetricsDump(System.out, metricsInterval);
+            }
+            if (Boolean.getBoolean(METRICS_JMX_PROPERTY)) {
+                try {
+                    seSystem.getMetrics().registerMBean();
+                } catch (JMException e) {
+                    System.out.println("Cannot register the metrics MBean: " + e.getMessage());
+                    System.exit(1);
+                }
+            }
+            seSystem.run();
+            report = seSystem.createReport();
+            seSystem.printResults(report);
+        }
+        try {
+            String json = System.getProperty(RESULTS_JSON_PROPERTY);
+            if (json != null) {
+                try (Writer writer = Files.newBufferedWriter(Path.of(json))) {
+                    report.writeJson(writer);
+                }
+            }
+            String csv = System.getProperty(RESULTS_CSV_PROPERTY);
+            if (csv != null) {
+                try (Writer writer = Files.newBufferedWriter(Path.of(csv))) {
+                    report.writeCsv(writer);
+                }
+            }
+        } catch (IOException e) {
+            System.out.println("Cannot export results: " + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    // Settings of a single run that don't come from the input file
+    private static void applyRunProperties(InputInfo inputInfo) {
+        String seed = System.getProperty(SEED_PROPERTY);
+        if (seed != null) {
+            try {
+                inputInfo.setSeed(Long.parseLong(seed));
+            } catch (NumberFormatException e) {
+                System.out.println("Invalid seed: " + seed);
+                System.exit(1);
+            }
+        }
+        String matchingMode = System.getProperty(MATCHING_MODE_PROPERTY);
+        if (matchingMode != null) {
+            try {
+                inputInfo.setMatchingMode(MatchingMode.valueOf(matchingMode.toUpperCase()));
+            } catch (IllegalArgumentException e) {
+                System.out.println("Invalid matching mode: " + matchingMode);
+                System.exit(1);
+            }
+        }
+        if (Boolean.getBoolean(PARALLEL_DECISIONS_PROPERTY)) {
+            inputInfo.setParallelDecisions(true);
+        }
+        String threads = System.getProperty(THREADS_PROPERTY);
+        if (threads != null) {
+            try {
+                inputInfo.setThreadCount(Integer.parseInt(threads));
+            } catch (NumberFormatException e) {
+                inputInfo.setThreadCount(0);
+            }
+            if (inputInfo.getThreadCount() < 1) {
+                System.out.println("Invalid thread count: " + threads);
+                System.exit(1);
+            }
+        } else if (inputInfo.isParallelDecisions() || inputInfo.getMatchingMode() == MatchingMode.PARALLEL) {
+            inputInfo.setThreadCount(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    // --batch <scenarios file> <results CSV file> [threads]
+    private static void runBatch(String[] args) {
+        if (args.length != 3 && args.length != 4) {
+            System.out.println("Usage: --batch <scenarios file> <results CSV file> [threads]");
+            System.exit(1);
+        }
+
+        try {
+            int poolSize = args.length == 4 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            BatchRunner runner = new BatchRunner(poolSize);
+            List<ScenarioResult> results = runner.run(BatchRunner.readScenarios(Path.of(args[1])));
+            BatchRunner.writeCsv(results, Path.of(args[2]));
+
+            long failedCount = results.stream().filter(ScenarioResult::isFailed).count();
+            System.out.println("Ran " + results.size() + " scenarios, " + failedCount + " failed");
+        } catch (NumberFormatException e) {
+            System.out.println("Invalid thread count: " + args[3]);
+            System.exit(1);
+        } catch (InputReader.InputException | IOException e) {
+            System.out.println(e.getMessage());
+            System.exit(1);
+        } catch (InterruptedException e) {
+            System.exit(1);
+        }
     }
-}
\ No newline at end of file
+}
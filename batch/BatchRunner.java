@@ -0,0 +1,151 @@
+package batch;
+
+import investor.InvestorType;
+import io.InputInfo;
+import io.InputReader;
+import system.SESystem;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Runs many scenarios at once on a fixed number of threads. Every scenario gets its own SESystem,
+ * which shares nothing with the others, so results don't depend on what runs next to what.
+ */
+public class BatchRunner {
+    private final int poolSize;
+
+    public BatchRunner(int poolSize) {
+        if (poolSize <= 0) {
+            throw new IllegalArgumentException("Pool size must be positive: " + poolSize);
+        }
+        this.poolSize = poolSize;
+    }
+
+    /**
+     * Reads a scenarios file, one scenario per line (see {@link Scenario}), skipping empty lines and comments.
+     */
+    public static List<Scenario> readScenarios(Path path) throws IOException, InputReader.InputException {
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String line : Files.readAllLines(path)) {
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            scenarios.add(Scenario.parse(line));
+        }
+        return scenarios;
+    }
+
+    /**
+     * Runs all scenarios and returns their results in the same order. A scenario that fails doesn't stop the others.
+     */
+    public List<ScenarioResult> run(List<Scenario> scenarios) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(poolSize);
+        try {
+            List<Future<ScenarioResult>> futures = new ArrayList<>();
+            for (Scenario scenario : scenarios) {
+                futures.add(pool.submit(() -> runScenario(scenario)));
+            }
+
+            List<ScenarioResult> results = new ArrayList<>();
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    results.add(ScenarioResult.failed(scenarios.get(i), String.valueOf(e.getCause())));
+                }
+            }
+            return results;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static ScenarioResult runScenario(Scenario scenario) {
+        InputInfo inputInfo;
+        try {
+            inputInfo = scenario.toInputInfo();
+        } catch (InputReader.InputException e) {
+            return ScenarioResult.failed(scenario, e.getMessage());
+        }
+
+        long start = System.nanoTime();
+        try (SESystem system = new SESystem(inputInfo)) {
+            system.run();
+            return ScenarioResult.of(scenario, system, inputInfo.getSeed(), (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    /**
+     * Writes one CSV line per scenario, with aggregates for every investor type.
+     */
+    public static void writeCsv(List<ScenarioResult> results, Path path) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(path)) {
+            StringBuilder header = new StringBuilder("scenario,input,rounds,seed,mode,threads,transactions,elapsed_ms");
+            for (InvestorType type : InvestorType.values()) {
+                String prefix = type.name().toLowerCase();
+                header.append(',').append(prefix).append("_count")
+                        .append(',').append(prefix).append("_mean_net_worth")
+                        .append(',').append(prefix).append("_median_net_worth")
+                        .append(',').append(prefix).append("_beating_start");
+            }
+            header.append(",final_prices,error");
+            writer.write(header.toString());
+            writer.newLine();
+
+            for (ScenarioResult result : results) {
+                Scenario scenario = result.getScenario();
+                StringBuilder line = new StringBuilder();
+                line.append(csvField(scenario.getName())).append(',')
+                        .append(csvField(scenario.getInputFile())).append(',')
+                        .append(scenario.getRoundCount()).append(',');
+                if (result.isFailed()) {
+                    // Everything but the error is empty
+                    line.append(",".repeat(6 + 4 * InvestorType.values().length)).append(csvField(result.getError()));
+                } else {
+                    line.append(result.getSeed()).append(',')
+                            .append(scenario.getMatchingMode()).append(',')
+                            .append(scenario.getThreadCount()).append(',')
+                            .append(result.getTransactionCount()).append(',')
+                            .append(result.getElapsedMillis());
+                    for (InvestorType type : InvestorType.values()) {
+                        line.append(',').append(result.getInvestorCount(type))
+                                .append(',').append(result.getMeanNetWorth(type))
+                                .append(',').append(result.getMedianNetWorth(type))
+                                .append(',').append(result.getBeatingStartShare(type));
+                    }
+                    line.append(',').append(csvField(pricesOf(result.getFinalPrices()))).append(',');
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        }
+    }
+
+    private static String pricesOf(Map<String, Integer> prices) {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, Integer> price : prices.entrySet()) {
+            if (!builder.isEmpty()) {
+                builder.append(' ');
+            }
+            builder.append(price.getKey()).append(':').append(price.getValue());
+        }
+        return builder.toString();
+    }
+
+    private static String csvField(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
@@ -0,0 +1,88 @@
+package batch;
+
+import investor.Investor;
+import investor.InvestorType;
+import io.InputReader;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import system.SESystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRunnerTest {
+
+    @Test
+    void run(@TempDir Path dir) throws IOException, InputReader.InputException, InterruptedException {
+        Path scenariosFile = dir.resolve("scenarios.txt");
+        StringBuilder scenarios = new StringBuilder("# the same scenario many times, they must not influence each other\n");
+        for (int i = 0; i < 8; i++) {
+            scenarios.append("same").append(i).append(" system/testfiles/testMoodle.txt 200 seed=9 investors=R*50,S*5\n");
+        }
+        scenarios.append("\nparallel system/testfiles/testMoodle.txt 200 seed=9 mode=parallel threads=2\n");
+        scenarios.append("missing nothing.txt 10\n");
+        Files.writeString(scenariosFile, scenarios);
+
+        List<ScenarioResult> results = new BatchRunner(4).run(BatchRunner.readScenarios(scenariosFile));
+        assertEquals(10, results.size());
+
+        ScenarioResult first = results.get(0);
+        assertFalse(first.isFailed());
+        assertEquals(9, first.getSeed());
+        assertEquals(50, first.getInvestorCount(InvestorType.RANDOM));
+        assertEquals(5, first.getInvestorCount(InvestorType.SMA));
+        for (ScenarioResult result : results.subList(1, 8)) {
+            assertEquals(first.getTransactionCount(), result.getTransactionCount());
+            assertEquals(first.getFinalPrices(), result.getFinalPrices());
+            assertEquals(first.getMeanNetWorth(InvestorType.RANDOM), result.getMeanNetWorth(InvestorType.RANDOM));
+        }
+        assertFalse(results.get(8).isFailed());
+        assertEquals("File not found", results.get(9).getError());
+
+        Path resultsFile = dir.resolve("results.csv");
+        BatchRunner.writeCsv(results, resultsFile);
+        List<String> lines = Files.readAllLines(resultsFile);
+        assertEquals(11, lines.size());
+        int columnCount = lines.get(0).split(",", -1).length;
+        for (String line : lines) {
+            assertEquals(columnCount, line.split(",", -1).length);
+        }
+        assertTrue(lines.get(1).startsWith("same0,system/testfiles/testMoodle.txt,200,9,SEQUENTIAL,1,"));
+        assertTrue(lines.get(10).endsWith(",File not found"));
+    }
+
+    @Test
+    void parseScenario() throws InputReader.InputException {
+        Scenario scenario = Scenario.parse("  big input.txt 1000 threads=4 mode=PARALLEL decisions=parallel sma=3:20");
+        assertEquals("big", scenario.getName());
+        assertEquals(1000, scenario.getRoundCount());
+        assertEquals(4, scenario.getThreadCount());
+        assertTrue(scenario.isParallelDecisions());
+        assertFalse(Scenario.parse("big input.txt 10").isParallelDecisions());
+
+        assertThrows(InputReader.InputException.class, () -> Scenario.parse("big input.txt"));
+        assertThrows(InputReader.InputException.class, () -> Scenario.parse("big input.txt x"));
+        assertThrows(InputReader.InputException.class, () -> Scenario.parse("big input.txt 10 mode=FAST"));
+        assertThrows(InputReader.InputException.class, () -> Scenario.parse("big input.txt 10 decisions=some"));
+        assertThrows(InputReader.InputException.class, () -> Scenario.parse("big input.txt 10 colour=red"));
+        assertThrows(InputReader.InputException.class, () -> Scenario.parse("big input.txt 10 investors=Q*5"));
+    }
+
+    @Test
+    void investorIds() throws InputReader.InputException {
+        // Ids are handed out by each system, not shared between them
+        for (int i = 0; i < 2; i++) {
+            SESystem system = new SESystem(new Scenario("ids", "system/testfiles/testMoodle.txt", 1).toInputInfo());
+            List<Integer> ids = new ArrayList<>();
+            for (Investor investor : system.getInvestors()) {
+                ids.add(investor.getId());
+            }
+            assertEquals(List.of(0, 1, 2, 3, 4, 5), ids);
+        }
+    }
+}
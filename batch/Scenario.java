@@ -0,0 +1,131 @@
+package batch;
+
+import investor.InvestorType;
+import io.InputInfo;
+import io.InputReader;
+import system.MatchingMode;
+
+import java.util.Map;
+
+/**
+ * One simulation of a batch: an input file and round count, and optionally settings that replace the file's.
+ * In a scenarios file every scenario is a line:
+ * <pre>
+ * name input-file round-count [seed=N] [investors=R*900,S*100] [mode=SEQUENTIAL|PARALLEL] [threads=N]
+ *     [decisions=sequential|parallel] [sma=5:10]
+ * </pre>
+ */
+public class Scenario {
+    private final String name;
+    private final String inputFile;
+    private final int roundCount;
+    private Long seed; // null for a random one
+    private Map<InvestorType, Integer> investorCounts; // null for the ones in the input file
+    private MatchingMode matchingMode = MatchingMode.SEQUENTIAL;
+    private int threadCount = 1;
+    private boolean parallelDecisions = false;
+    private int smaShortPeriod = 0; // 0 for the default periods
+    private int smaLongPeriod = 0;
+
+    public Scenario(String name, String inputFile, int roundCount) {
+        this.name = name;
+        this.inputFile = inputFile;
+        this.roundCount = roundCount;
+    }
+
+    /**
+     * Parses a line of a scenarios file.
+     */
+    public static Scenario parse(String line) throws InputReader.InputException {
+        String[] fields = line.trim().split("\\s+");
+        if (fields.length < 3) {
+            throw new InputReader.InputException("Invalid scenario: " + line);
+        }
+
+        Scenario scenario;
+        try {
+            scenario = new Scenario(fields[0], fields[1], Integer.parseInt(fields[2]));
+        } catch (NumberFormatException e) {
+            throw new InputReader.InputException("Invalid round count: " + fields[2]);
+        }
+
+        for (int i = 3; i < fields.length; i++) {
+            int equals = fields[i].indexOf('=');
+            if (equals < 0) {
+                throw new InputReader.InputException("Invalid scenario option: " + fields[i]);
+            }
+            String key = fields[i].substring(0, equals);
+            String value = fields[i].substring(equals + 1);
+            try {
+                switch (key) {
+                    case "seed" -> scenario.seed = Long.parseLong(value);
+                    case "investors" -> scenario.investorCounts = InputReader.parseInvestors(value.replace(',', ' '));
+                    case "mode" -> scenario.matchingMode = MatchingMode.valueOf(value.toUpperCase());
+                    case "threads" -> scenario.threadCount = Integer.parseInt(value);
+                    case "decisions" -> scenario.parallelDecisions = switch (value.toLowerCase()) {
+                        case "sequential" -> false;
+                        case "parallel" -> true;
+                        default -> throw new IllegalArgumentException("Unknown decision mode: " + value);
+                    };
+                    case "sma" -> {
+                        String[] periods = value.split(":");
+                        if (periods.length != 2) {
+                            throw new InputReader.InputException("Invalid scenario option: " + fields[i]);
+                        }
+                        scenario.smaShortPeriod = Integer.parseInt(periods[0]);
+                        scenario.smaLongPeriod = Integer.parseInt(periods[1]);
+                    }
+                    default -> throw new InputReader.InputException("Unknown scenario option: " + key);
+                }
+            } catch (IllegalArgumentException e) {
+                // Thrown for bad numbers and unknown modes alike
+                throw new InputReader.InputException("Invalid scenario option: " + fields[i]);
+            }
+        }
+        return scenario;
+    }
+
+    /**
+     * Reads the input file and applies the scenario's settings to it.
+     */
+    public InputInfo toInputInfo() throws InputReader.InputException {
+        InputInfo inputInfo = InputReader.readInput(new String[]{inputFile, Integer.toString(roundCount)});
+        if (seed != null) {
+            inputInfo.setSeed(seed);
+        }
+        if (investorCounts != null) {
+            inputInfo.setInvestorCounts(investorCounts);
+        }
+        if (smaShortPeriod != 0) {
+            inputInfo.setSMAPeriods(smaShortPeriod, smaLongPeriod);
+        }
+        inputInfo.setMatchingMode(matchingMode);
+        inputInfo.setThreadCount(threadCount);
+        inputInfo.setParallelDecisions(parallelDecisions);
+        return inputInfo;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getInputFile() {
+        return inputFile;
+    }
+
+    public int getRoundCount() {
+        return roundCount;
+    }
+
+    public MatchingMode getMatchingMode() {
+        return matchingMode;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public boolean isParallelDecisions() {
+        return parallelDecisions;
+    }
+}
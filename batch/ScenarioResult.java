@@ -0,0 +1,99 @@
+package batch;
+
+import investor.InvestorType;
+import stats.ResultsReport;
+import stats.StrategyStats;
+import system.SESystem;
+
+import java.util.Map;
+
+/**
+ * What came out of one scenario of a batch, or why it failed.
+ */
+public class ScenarioResult {
+    private final Scenario scenario;
+    private final String error; // null if the scenario ran
+    private long seed;
+    private long elapsedMillis;
+    private ResultsReport report;
+
+    private ScenarioResult(Scenario scenario, String error) {
+        this.scenario = scenario;
+        this.error = error;
+    }
+
+    static ScenarioResult failed(Scenario scenario, String error) {
+        return new ScenarioResult(scenario, error);
+    }
+
+    static ScenarioResult of(Scenario scenario, SESystem system, long seed, long elapsedMillis) {
+        ScenarioResult result = new ScenarioResult(scenario, null);
+        result.seed = seed;
+        result.elapsedMillis = elapsedMillis;
+        result.report = system.createReport();
+        return result;
+    }
+
+    public Scenario getScenario() {
+        return scenario;
+    }
+
+    public boolean isFailed() {
+        return error != null;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Statistics of the finished scenario, null if it failed.
+     */
+    public ResultsReport getReport() {
+        return report;
+    }
+
+    public int getTransactionCount() {
+        return report.getTransactionCount();
+    }
+
+    public Map<String, Integer> getFinalPrices() {
+        return report.getEndPrices();
+    }
+
+    public int getInvestorCount(InvestorType type) {
+        return report.get(type).getCount();
+    }
+
+    /**
+     * Mean net worth of the investors of the type, 0 if there are none.
+     */
+    public double getMeanNetWorth(InvestorType type) {
+        StrategyStats stats = report.get(type);
+        return stats.isEmpty() ? 0 : stats.getMean();
+    }
+
+    /**
+     * Median net worth of the investors of the type, 0 if there are none.
+     */
+    public double getMedianNetWorth(InvestorType type) {
+        StrategyStats stats = report.get(type);
+        return stats.isEmpty() ? 0 : stats.getMedian();
+    }
+
+    /**
+     * Share of the investors of the type that ended with a higher net worth than they started with, 0 if there are none.
+     */
+    public double getBeatingStartShare(InvestorType type) {
+        StrategyStats stats = report.get(type);
+        return stats.isEmpty() ? 0 : stats.getBeatingStartShare();
+    }
+}
@@ -0,0 +1,38 @@
+package bench;
+
+import org.openjdk.jmh.annotations.*;
+import utils.IndexPermutation;
+import utils.SplitMixRandom;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One full pass over a permutation, which is what every round does with the investors.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class IndexPermutationBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    int size;
+
+    private IndexPermutation indexPermutation;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        indexPermutation = new IndexPermutation(size, new SplitMixRandom(42));
+    }
+
+    @Benchmark
+    public long fullPass() {
+        indexPermutation.reset();
+        long sum = 0;
+        while (indexPermutation.hasNext()) {
+            sum += indexPermutation.getNext();
+        }
+        return sum;
+    }
+}
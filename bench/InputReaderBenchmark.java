@@ -0,0 +1,62 @@
+package bench;
+
+import io.InputInfo;
+import io.InputReader;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reading a generated input file with many investors and stocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InputReaderBenchmark {
+    @Param({"1000", "1000000"})
+    int investorCount;
+
+    @Param({"3", "1000"})
+    int stockCount;
+
+    private Path inputFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        inputFile = Files.createTempFile("input", ".txt");
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(inputFile))) {
+            writer.println("# generated for InputReaderBenchmark");
+            StringBuilder investors = new StringBuilder();
+            for (int i = 0; i < investorCount; i++) {
+                investors.append(i % 10 == 0 ? "S " : "R ");
+            }
+            writer.println(investors.toString().trim());
+
+            StringBuilder stocks = new StringBuilder();
+            StringBuilder wallet = new StringBuilder("1000");
+            for (int i = 0; i < stockCount; i++) {
+                stocks.append(Scenarios.symbolName(i)).append(':').append(100).append(' ');
+                wallet.append(' ').append(Scenarios.symbolName(i)).append(':').append(1);
+            }
+            writer.println(stocks.toString().trim());
+            writer.println(wallet);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(inputFile);
+    }
+
+    @Benchmark
+    public InputInfo readInput() throws InputReader.InputException {
+        return InputReader.readInput(new String[]{inputFile.toString(), "10"});
+    }
+}
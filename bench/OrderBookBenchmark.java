@@ -0,0 +1,106 @@
+package bench;
+
+import investor.Investor;
+import investor.InvestorFactory;
+import investor.InvestorType;
+import io.InputInfo;
+import order.*;
+import org.openjdk.jmh.annotations.*;
+import system.SESystem;
+import utils.SplitMixRandom;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserting into and matching against a book that already holds {@code bookDepth} orders on each side.
+ * The resting orders never cross, so they show how much the depth of the book costs every operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBookBenchmark {
+    private static final int MID_PRICE = 10_000;
+    private static final int DEALS_PER_MATCH = 100;
+
+    @Param({"100", "10000", "100000"})
+    int bookDepth;
+
+    // Share of the crossing buy orders that are full execution (fill or kill) orders
+    @Param({"0", "0.5", "1"})
+    double fullExecutionShare;
+
+    private OrderBook orderBook;
+    private Investor investor;
+    private SplitMixRandom random;
+    private int round = 0;
+    private int priority = 0;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        InputInfo inputInfo = Scenarios.create(1, 0, 1);
+        SESystem system = new SESystem(inputInfo);
+        String stockID = Scenarios.symbolName(0);
+        // Rich enough to never run out of cash or stocks during an iteration
+        investor = InvestorFactory.createInvestor(InvestorType.RANDOM, system, Map.of(stockID, 1_000_000_000),
+                1_000_000_000, new SplitMixRandom(1));
+        random = new SplitMixRandom(7);
+
+        orderBook = new OrderBook(stockID, 0);
+        for (int i = 0; i < bookDepth; i++) {
+            int distance = 1 + random.nextInt(bookDepth / 10 + 1);
+            orderBook.add(order(OrderType.BUY, DueType.PERSISTENT, MID_PRICE - 100 - distance));
+            orderBook.add(order(OrderType.SELL, DueType.PERSISTENT, MID_PRICE + 100 + distance));
+        }
+    }
+
+    private StockOrder order(OrderType type, DueType dueType, int priceLimit) throws StockOrder.BadOrderException {
+        OrderInfo orderInfo = new OrderInfo();
+        orderInfo.setType(type);
+        orderInfo.setDueType(dueType);
+        orderInfo.setStockID(orderBook == null ? Scenarios.symbolName(0) : orderBook.getStockID());
+        orderInfo.setStockIndex(0);
+        orderInfo.setQuantity(1);
+        orderInfo.setPriceLimit(priceLimit);
+        orderInfo.setInvestor(investor);
+        StockOrder order = new StockOrder(orderInfo);
+        order.reserve();
+        order.setRound(round);
+        order.setPriorityInRound(priority++);
+        return order;
+    }
+
+    /**
+     * Adds and removes an order somewhere inside the resting part of the book.
+     */
+    @Benchmark
+    public StockOrder insertAndRemove() throws StockOrder.BadOrderException {
+        StockOrder order = order(OrderType.BUY, DueType.PERSISTENT, MID_PRICE - 100 - 1 - random.nextInt(bookDepth / 10 + 1));
+        orderBook.add(order);
+        orderBook.remove(order);
+        order.release();
+        return order;
+    }
+
+    /**
+     * Adds crossing buy and sell orders around the middle of the book and matches them all away.
+     */
+    @Benchmark
+    @OperationsPerInvocation(DEALS_PER_MATCH)
+    public int insertAndMatch() throws StockOrder.BadOrderException {
+        round++;
+        for (int i = 0; i < DEALS_PER_MATCH; i++) {
+            orderBook.add(order(OrderType.SELL, DueType.IMMEDIATE, MID_PRICE));
+        }
+        for (int i = 0; i < DEALS_PER_MATCH; i++) {
+            DueType dueType = random.nextDouble() < fullExecutionShare ? DueType.FULL_EXECUTION : DueType.IMMEDIATE;
+            orderBook.add(order(OrderType.BUY, dueType, MID_PRICE));
+        }
+        int dealCount = orderBook.match();
+        orderBook.settle();
+        return dealCount;
+    }
+}
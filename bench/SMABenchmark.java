@@ -0,0 +1,37 @@
+package bench;
+
+import investor.SMAInfo;
+import org.openjdk.jmh.annotations.*;
+import system.SESystem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A single SMAInfo update, for short and long windows.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SMABenchmark {
+    // short:long period
+    @Param({"5:10", "50:200", "500:2000"})
+    String periods;
+
+    private SMAInfo smaInfo;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SESystem system = new SESystem(Scenarios.create(1, 0, 1));
+        String[] shortAndLong = periods.split(":");
+        smaInfo = new SMAInfo(system, 0, Integer.parseInt(shortAndLong[0]), Integer.parseInt(shortAndLong[1]));
+    }
+
+    @Benchmark
+    public double updateSMA() {
+        smaInfo.updateSMA();
+        return smaInfo.getSignalStrength();
+    }
+}
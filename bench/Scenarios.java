@@ -0,0 +1,53 @@
+package bench;
+
+import investor.InvestorType;
+import io.InputInfo;
+import utils.SymbolRegistry;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Builds simulation inputs of any size without going through an input file.
+ */
+final class Scenarios {
+    static final int WALLET_CASH = 100_000;
+    static final int WALLET_STOCKS = 10;
+
+    private Scenarios() {
+    }
+
+    static InputInfo create(int randomCount, int smaCount, int stockCount) {
+        Map<InvestorType, Integer> investorCounts = new EnumMap<>(InvestorType.class);
+        investorCounts.put(InvestorType.RANDOM, randomCount);
+        investorCounts.put(InvestorType.SMA, smaCount);
+
+        Map<String, Integer> stockPrices = new LinkedHashMap<>();
+        Map<String, Integer> walletStocks = new LinkedHashMap<>();
+        for (int i = 0; i < stockCount; i++) {
+            stockPrices.put(symbolName(i), 50 + i % 200);
+            walletStocks.put(symbolName(i), WALLET_STOCKS);
+        }
+
+        InputInfo inputInfo = new InputInfo();
+        inputInfo.setInvestorCounts(investorCounts);
+        inputInfo.setStocks(stockPrices);
+        inputInfo.setSymbols(new SymbolRegistry(stockPrices.keySet()));
+        inputInfo.setWalletCashCount(WALLET_CASH);
+        inputInfo.setWalletStocks(walletStocks);
+        inputInfo.setRoundCount(Integer.MAX_VALUE);
+        inputInfo.setSeed(42);
+        return inputInfo;
+    }
+
+    // A, B, ..., Z, BA, BB, ... - only letters, like the input format requires
+    static String symbolName(int index) {
+        StringBuilder name = new StringBuilder();
+        do {
+            name.insert(0, (char) ('A' + index % 26));
+            index /= 26;
+        } while (index > 0);
+        return name.toString();
+    }
+}
@@ -0,0 +1,58 @@
+package bench;
+
+import io.InputInfo;
+import org.openjdk.jmh.annotations.*;
+import system.MatchingMode;
+import system.SESystem;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Whole rounds of the simulation, reported as rounds per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulationBenchmark {
+    private static final int WARM_UP_ROUNDS = 20; // enough to fill the books and get SMA signals going
+
+    @Param({"1000", "100000"})
+    int investorCount;
+
+    @Param({"3", "100"})
+    int stockCount;
+
+    @Param({"SEQUENTIAL", "PARALLEL"})
+    MatchingMode matchingMode;
+
+    private SESystem system;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // 9 random investors for every SMA investor
+        InputInfo inputInfo = Scenarios.create(investorCount - investorCount / 10, investorCount / 10, stockCount);
+        inputInfo.setMatchingMode(matchingMode);
+        if (matchingMode == MatchingMode.PARALLEL) {
+            inputInfo.setThreadCount(Runtime.getRuntime().availableProcessors());
+            inputInfo.setParallelDecisions(true);
+        }
+        system = new SESystem(inputInfo);
+        for (int i = 0; i < WARM_UP_ROUNDS; i++) {
+            system.runRound();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // Shuts down the matching pool, so that threads don't pile up from trial to trial
+        system.close();
+    }
+
+    @Benchmark
+    public void round() {
+        system.runRound();
+    }
+}
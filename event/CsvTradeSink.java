@@ -0,0 +1,48 @@
+package event;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Writes trades as CSV lines, one trade per line after a header.
+ */
+public class CsvTradeSink implements TradeSink {
+    private final Writer writer;
+
+    public CsvTradeSink(Path path) throws IOException {
+        this(Files.newBufferedWriter(path));
+    }
+
+    public CsvTradeSink(Writer writer) throws IOException {
+        this.writer = writer instanceof BufferedWriter ? writer : new BufferedWriter(writer);
+        this.writer.write("round,symbol,price,quantity,buyer,seller,aggressor\n");
+    }
+
+    @Override
+    public void onTrades(TradeBatch trades) throws IOException {
+        for (int i = 0; i < trades.size(); i++) {
+            writer.write(Integer.toString(trades.getRound(i)));
+            writer.write(',');
+            writer.write(trades.getSymbol(i));
+            writer.write(',');
+            writer.write(Integer.toString(trades.getPrice(i)));
+            writer.write(',');
+            writer.write(Integer.toString(trades.getQuantity(i)));
+            writer.write(',');
+            writer.write(Integer.toString(trades.getBuyerId(i)));
+            writer.write(',');
+            writer.write(Integer.toString(trades.getSellerId(i)));
+            writer.write(',');
+            writer.write(trades.getAggressor(i).name());
+            writer.write('\n');
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,43 @@
+package event;
+
+import order.RejectionReason;
+import order.StockOrder;
+
+import java.io.IOException;
+
+/**
+ * Follows every order through its life in the system. Called on the simulation thread, in the order things happen:
+ * within a round orders expire first, then new orders are accepted or rejected, and then the books are matched.
+ * Orders are reused once they leave the system, so a listener must not hold on to them after the call.
+ */
+public interface OrderEventListener {
+    void onAccepted(int round, StockOrder order);
+
+    void onRejected(int round, StockOrder order, RejectionReason reason);
+
+    /**
+     * The order was still in its book when it became overdue.
+     */
+    void onExpired(int round, StockOrder order);
+
+    /**
+     * The investor cancelled the order while it was still in its book.
+     */
+    void onCancelled(int round, StockOrder order);
+
+    /**
+     * A deal between the two orders, at a price per stock.
+     */
+    void onFill(int round, StockOrder buyOrder, StockOrder sellOrder, int price, int quantity, boolean buyAggressor);
+
+    /**
+     * The order was filled completely and left its book. Follows the order's last fill.
+     */
+    void onFilled(int round, StockOrder order);
+
+    default void onRoundEnd(int round) throws IOException {
+    }
+
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,10 @@
+package event;
+
+public enum TapeEventType {
+    ACCEPTED,
+    REJECTED,
+    EXPIRED,
+    FILL, // a single deal between a buy and a sell order
+    FILLED, // an order was filled completely
+    CANCELLED
+}
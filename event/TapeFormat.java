@@ -0,0 +1,65 @@
+package event;
+
+import java.nio.ByteOrder;
+
+/**
+ * Layout of a tape file: a header followed by fixed-width little-endian records.
+ * <pre>
+ * header   0  long  magic
+ *          8  int   version
+ *          12 int   record size
+ *          16 long  number of records written when the tape was last flushed
+ *          24 long  reserved
+ *
+ * record   0  byte  event type
+ *          1  byte  side: the order's side, for a fill the aggressor's
+ *          2  byte  due type of the order, 0 for fills
+ *          3  byte  rejection reason of a rejected order, 0 otherwise
+ *          4  int   round
+ *          8  long  order id, for a fill the buy order's
+ *          16 long  sell order id of a fill, -1 otherwise
+ *          24 int   stock index, may be anything for orders rejected for an unknown stock
+ *          28 int   price limit of the order, for a fill the price per stock
+ *          32 int   quantity left in the order, for a fill the quantity traded
+ *          36 int   investor id, for a fill the buyer's
+ *          40 int   seller id of a fill, -1 otherwise
+ *          44 int   reserved
+ * </pre>
+ * Rejected orders never get an id, so their order id is -1.
+ */
+final class TapeFormat {
+    static final long MAGIC = 0x3130455041544553L; // "SETAPE01" read as little-endian bytes
+    static final int VERSION = 2;
+    static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    static final int HEADER_SIZE = 32;
+    static final int MAGIC_OFFSET = 0;
+    static final int VERSION_OFFSET = 8;
+    static final int RECORD_SIZE_OFFSET = 12;
+    static final int RECORD_COUNT_OFFSET = 16;
+
+    static final int RECORD_SIZE = 48;
+    static final int TYPE = 0;
+    static final int SIDE = 1;
+    static final int DUE_TYPE = 2;
+    static final int REASON = 3;
+    static final int ROUND = 4;
+    static final int ORDER_ID = 8;
+    static final int SELL_ORDER_ID = 16;
+    static final int STOCK_INDEX = 24;
+    static final int PRICE = 28;
+    static final int QUANTITY = 32;
+    static final int INVESTOR_ID = 36;
+    static final int SELLER_ID = 40;
+
+    // Files are mapped in regions of whole records, so a record never spans two mappings
+    static final int RECORDS_PER_REGION = 1 << 20;
+    static final long REGION_SIZE = (long) RECORDS_PER_REGION * RECORD_SIZE;
+
+    private TapeFormat() {
+    }
+
+    static long recordPosition(long record) {
+        return HEADER_SIZE + record * RECORD_SIZE;
+    }
+}
@@ -0,0 +1,155 @@
+package event;
+
+import order.DueType;
+import order.OrderType;
+import order.RejectionReason;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static event.TapeFormat.*;
+
+/**
+ * Reads a tape written by {@link TapeWriter}. The reader is a cursor over the mapped file: {@link #next()} moves it
+ * to the next record and the getters read the fields of the current record in place, so no record objects are made.
+ * <pre>
+ * try (TapeReader tape = new TapeReader(path)) {
+ *     while (tape.next()) {
+ *         if (tape.getType() == TapeEventType.FILL) { ... tape.getPrice() ... }
+ *     }
+ * }
+ * </pre>
+ */
+public class TapeReader implements AutoCloseable {
+    private static final TapeEventType[] TYPES = TapeEventType.values();
+    private static final OrderType[] SIDES = OrderType.values();
+    private static final DueType[] DUE_TYPES = DueType.values();
+    private static final RejectionReason[] REASONS = RejectionReason.values();
+
+    private final FileChannel channel;
+    private final MappedByteBuffer[] regions;
+    private final long recordCount;
+    private long current = -1;
+    private MappedByteBuffer region;
+    private int position;
+
+    public TapeReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a tape file: " + path);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(BYTE_ORDER);
+            if (header.getLong(MAGIC_OFFSET) != MAGIC) {
+                throw new IOException("Not a tape file: " + path);
+            }
+            if (header.getInt(VERSION_OFFSET) != VERSION || header.getInt(RECORD_SIZE_OFFSET) != RECORD_SIZE) {
+                throw new IOException("Unsupported tape version: " + header.getInt(VERSION_OFFSET));
+            }
+            // Records after the last flush may be incomplete, they are not read
+            recordCount = Math.min(header.getLong(RECORD_COUNT_OFFSET), (channel.size() - HEADER_SIZE) / RECORD_SIZE);
+
+            regions = new MappedByteBuffer[(int) ((recordCount + RECORDS_PER_REGION - 1) / RECORDS_PER_REGION)];
+            for (int i = 0; i < regions.length; i++) {
+                long firstRecord = (long) i * RECORDS_PER_REGION;
+                long size = Math.min(RECORDS_PER_REGION, recordCount - firstRecord) * RECORD_SIZE;
+                regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, recordPosition(firstRecord), size);
+                regions[i].order(BYTE_ORDER);
+            }
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Moves to the next record. Returns false when there are no more records.
+     */
+    public boolean next() {
+        if (current + 1 >= recordCount) {
+            current = recordCount;
+            return false;
+        }
+        seek(current + 1);
+        return true;
+    }
+
+    /**
+     * Moves to the given record, counting from 0.
+     */
+    public void seek(long record) {
+        if (record < 0 || record >= recordCount) {
+            throw new IndexOutOfBoundsException("Record " + record + " out of " + recordCount);
+        }
+        current = record;
+        region = regions[(int) (record / RECORDS_PER_REGION)];
+        position = (int) (record % RECORDS_PER_REGION) * RECORD_SIZE;
+    }
+
+    public TapeEventType getType() {
+        return TYPES[region.get(position + TYPE)];
+    }
+
+    public OrderType getSide() {
+        return SIDES[region.get(position + SIDE)];
+    }
+
+    /**
+     * Due type of the order, null for fills.
+     */
+    public DueType getDueType() {
+        return getType() == TapeEventType.FILL ? null : DUE_TYPES[region.get(position + DUE_TYPE)];
+    }
+
+    /**
+     * Why the order was rejected, null for all other events.
+     */
+    public RejectionReason getRejectionReason() {
+        return getType() == TapeEventType.REJECTED ? REASONS[region.get(position + REASON)] : null;
+    }
+
+    public int getRound() {
+        return region.getInt(position + ROUND);
+    }
+
+    public long getOrderId() {
+        return region.getLong(position + ORDER_ID);
+    }
+
+    public long getSellOrderId() {
+        return region.getLong(position + SELL_ORDER_ID);
+    }
+
+    public int getStockIndex() {
+        return region.getInt(position + STOCK_INDEX);
+    }
+
+    public int getPrice() {
+        return region.getInt(position + PRICE);
+    }
+
+    public int getQuantity() {
+        return region.getInt(position + QUANTITY);
+    }
+
+    public int getInvestorId() {
+        return region.getInt(position + INVESTOR_ID);
+    }
+
+    public int getSellerId() {
+        return region.getInt(position + SELLER_ID);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
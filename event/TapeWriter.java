@@ -0,0 +1,162 @@
+package event;
+
+import order.OrderType;
+import order.RejectionReason;
+import order.StockOrder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static event.TapeFormat.*;
+
+/**
+ * Writes every order event of a simulation to a binary tape file (see {@link TapeFormat} for the layout).
+ * Records are stored straight into a memory-mapped region of the file, which is extended a region at a time.
+ * Every few rounds the written records are forced to disk and counted in the header, so after a crash the tape
+ * still reads up to the last flush. Closing the writer flushes it and cuts the file down to the records written.
+ */
+public class TapeWriter implements OrderEventListener, AutoCloseable {
+    public static final int DEFAULT_FLUSH_INTERVAL = 100; // rounds
+
+    private final FileChannel channel;
+    private final MappedByteBuffer header;
+    private final int flushInterval;
+    private MappedByteBuffer region;
+    private long recordCount = 0;
+    private int position = 0; // of the next record in the current region
+
+    public TapeWriter(Path path) throws IOException {
+        this(path, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    public TapeWriter(Path path, int flushInterval) throws IOException {
+        if (flushInterval <= 0) {
+            throw new IllegalArgumentException("Flush interval must be positive: " + flushInterval);
+        }
+        this.flushInterval = flushInterval;
+        channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        header = channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+        header.order(BYTE_ORDER);
+        header.putLong(MAGIC_OFFSET, MAGIC);
+        header.putInt(VERSION_OFFSET, VERSION);
+        header.putInt(RECORD_SIZE_OFFSET, RECORD_SIZE);
+        header.putLong(RECORD_COUNT_OFFSET, 0);
+        region = mapRegion(0);
+    }
+
+    private MappedByteBuffer mapRegion(long firstRecord) throws IOException {
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, recordPosition(firstRecord), REGION_SIZE);
+        buffer.order(BYTE_ORDER);
+        return buffer;
+    }
+
+    /**
+     * Starts a new record and returns its position in the current region.
+     */
+    private int next(TapeEventType type, int round) {
+        if (position == REGION_SIZE) {
+            try {
+                region.force();
+                region = mapRegion(recordCount);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            position = 0;
+        }
+        int record = position;
+        position += RECORD_SIZE;
+        recordCount++;
+        region.put(record + TYPE, (byte) type.ordinal());
+        region.putInt(record + ROUND, round);
+        return record;
+    }
+
+    private void writeOrder(TapeEventType type, int round, StockOrder order, RejectionReason reason) {
+        int record = next(type, round);
+        region.put(record + SIDE, (byte) order.getType().ordinal());
+        region.put(record + DUE_TYPE, (byte) order.getDueType().ordinal());
+        region.put(record + REASON, reason == null ? 0 : (byte) reason.ordinal());
+        region.putLong(record + ORDER_ID, order.getId());
+        region.putLong(record + SELL_ORDER_ID, StockOrder.NO_ID);
+        region.putInt(record + STOCK_INDEX, order.getStockIndex());
+        region.putInt(record + PRICE, order.getPriceLimit());
+        region.putInt(record + QUANTITY, order.getQuantity());
+        region.putInt(record + INVESTOR_ID, order.getInvestor().getId());
+        region.putInt(record + SELLER_ID, -1);
+    }
+
+    @Override
+    public void onAccepted(int round, StockOrder order) {
+        writeOrder(TapeEventType.ACCEPTED, round, order, null);
+    }
+
+    @Override
+    public void onRejected(int round, StockOrder order, RejectionReason reason) {
+        writeOrder(TapeEventType.REJECTED, round, order, reason);
+    }
+
+    @Override
+    public void onExpired(int round, StockOrder order) {
+        writeOrder(TapeEventType.EXPIRED, round, order, null);
+    }
+
+    @Override
+    public void onCancelled(int round, StockOrder order) {
+        writeOrder(TapeEventType.CANCELLED, round, order, null);
+    }
+
+    @Override
+    public void onFill(int round, StockOrder buyOrder, StockOrder sellOrder, int price, int quantity,
+                       boolean buyAggressor) {
+        int record = next(TapeEventType.FILL, round);
+        region.put(record + SIDE, (byte) (buyAggressor ? OrderType.BUY : OrderType.SELL).ordinal());
+        region.put(record + DUE_TYPE, (byte) 0);
+        region.put(record + REASON, (byte) 0);
+        region.putLong(record + ORDER_ID, buyOrder.getId());
+        region.putLong(record + SELL_ORDER_ID, sellOrder.getId());
+        region.putInt(record + STOCK_INDEX, buyOrder.getStockIndex());
+        region.putInt(record + PRICE, price);
+        region.putInt(record + QUANTITY, quantity);
+        region.putInt(record + INVESTOR_ID, buyOrder.getInvestor().getId());
+        region.putInt(record + SELLER_ID, sellOrder.getInvestor().getId());
+    }
+
+    @Override
+    public void onFilled(int round, StockOrder order) {
+        writeOrder(TapeEventType.FILLED, round, order, null);
+    }
+
+    @Override
+    public void onRoundEnd(int round) {
+        if ((round + 1) % flushInterval == 0) {
+            flush();
+        }
+    }
+
+    /**
+     * Forces everything written so far to disk and records it in the header.
+     */
+    public void flush() {
+        // Records go first, so the header never counts records that aren't on disk
+        region.force();
+        header.putLong(RECORD_COUNT_OFFSET, recordCount);
+        header.force();
+    }
+
+    public long getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        flush();
+        region = null;
+        channel.truncate(recordPosition(recordCount));
+        channel.close();
+    }
+}
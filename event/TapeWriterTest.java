@@ -0,0 +1,107 @@
+package event;
+
+import io.InputInfo;
+import io.InputReader;
+import order.DueType;
+import order.OrderType;
+import order.StockOrder;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import system.SESystem;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TapeWriterTest {
+
+    @Test
+    void writeAndRead(@TempDir Path dir) throws IOException, InputReader.InputException {
+        InputInfo info = InputReader.readInput(new String[]{"system/testfiles/testMoodle.txt", "300"});
+        info.setSeed(11);
+        Path path = dir.resolve("tape.bin");
+
+        SESystem system = new SESystem(info);
+        TapeWriter tape = new TapeWriter(path, 7);
+        system.addOrderListener(tape);
+        system.run();
+        system.close();
+        assertEquals(TapeFormat.recordPosition(tape.getRecordCount()), Files.size(path));
+
+        Map<Long, Integer> acceptedQuantities = new HashMap<>();
+        Map<Long, Integer> filledQuantities = new HashMap<>();
+        int fillCount = 0;
+        int filledCount = 0;
+        int cancelledCount = 0;
+        int lastRound = 0;
+        try (TapeReader reader = new TapeReader(path)) {
+            assertEquals(tape.getRecordCount(), reader.getRecordCount());
+            while (reader.next()) {
+                assertTrue(reader.getRound() >= lastRound);
+                lastRound = reader.getRound();
+                switch (reader.getType()) {
+                    case ACCEPTED -> {
+                        assertNull(acceptedQuantities.put(reader.getOrderId(), reader.getQuantity()));
+                        assertNotNull(reader.getDueType());
+                    }
+                    case REJECTED -> {
+                        assertEquals(StockOrder.NO_ID, reader.getOrderId());
+                        assertNotNull(reader.getRejectionReason());
+                    }
+                    case EXPIRED -> {
+                        assertTrue(acceptedQuantities.containsKey(reader.getOrderId()));
+                        assertNotEquals(DueType.PERSISTENT, reader.getDueType());
+                    }
+                    case CANCELLED -> {
+                        cancelledCount++;
+                        assertTrue(acceptedQuantities.containsKey(reader.getOrderId()));
+                        assertTrue(reader.getQuantity() > 0);
+                    }
+                    case FILL -> {
+                        fillCount++;
+                        assertTrue(reader.getPrice() > 0);
+                        assertTrue(acceptedQuantities.containsKey(reader.getOrderId()));
+                        assertTrue(acceptedQuantities.containsKey(reader.getSellOrderId()));
+                        filledQuantities.merge(reader.getOrderId(), reader.getQuantity(), Integer::sum);
+                        filledQuantities.merge(reader.getSellOrderId(), reader.getQuantity(), Integer::sum);
+                    }
+                    case FILLED -> {
+                        filledCount++;
+                        // Everything the order asked for went through its fills
+                        assertEquals(0, reader.getQuantity());
+                        assertEquals(acceptedQuantities.get(reader.getOrderId()), filledQuantities.get(reader.getOrderId()));
+                    }
+                }
+            }
+            assertFalse(reader.next());
+
+            reader.seek(0);
+            assertEquals(0, reader.getRound());
+        }
+        assertEquals(system.getTotalTransactionCount(), fillCount);
+        assertTrue(filledCount > 0);
+        // SMA investors cancel their orders once the signal moves on
+        assertEquals(system.getMetrics().getCancelledOrders(), cancelledCount);
+        assertTrue(cancelledCount > 0);
+    }
+
+    @Test
+    void readFlushed(@TempDir Path dir) throws IOException {
+        Path path = dir.resolve("tape.bin");
+        TapeWriter tape = new TapeWriter(path, 1);
+        // Nothing is counted before the first flush
+        tape.onRoundEnd(0);
+        try (TapeReader reader = new TapeReader(path)) {
+            assertEquals(0, reader.getRecordCount());
+            assertFalse(reader.next());
+        }
+        tape.close();
+
+        Files.writeString(path, "not a tape, just some text");
+        assertThrows(IOException.class, () -> new TapeReader(path));
+    }
+}
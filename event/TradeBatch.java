@@ -0,0 +1,71 @@
+package event;
+
+import order.OrderType;
+
+/**
+ * A run of consecutive trades in a {@link TradeBus}'s ring buffer. Trades are read in place by their
+ * position in the batch, nothing is copied out of the buffer.
+ */
+public class TradeBatch {
+    private final TradeBus bus;
+    private long start;
+    private int size;
+
+    TradeBatch(TradeBus bus) {
+        this.bus = bus;
+    }
+
+    void set(long start, int size) {
+        this.start = start;
+        this.size = size;
+    }
+
+    private int slot(int i) {
+        if (i < 0 || i >= size) {
+            throw new IndexOutOfBoundsException("Trade " + i + " out of " + size);
+        }
+        return bus.slot(start + i);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getRound(int i) {
+        return bus.rounds[slot(i)];
+    }
+
+    public int getStockIndex(int i) {
+        return bus.stockIndices[slot(i)];
+    }
+
+    public String getSymbol(int i) {
+        return bus.symbols.getSymbol(getStockIndex(i));
+    }
+
+    /**
+     * Price of a single stock.
+     */
+    public int getPrice(int i) {
+        return bus.prices[slot(i)];
+    }
+
+    public int getQuantity(int i) {
+        return bus.quantities[slot(i)];
+    }
+
+    public int getBuyerId(int i) {
+        return bus.buyerIds[slot(i)];
+    }
+
+    public int getSellerId(int i) {
+        return bus.sellerIds[slot(i)];
+    }
+
+    /**
+     * Side of the order that came later and took the resting one.
+     */
+    public OrderType getAggressor(int i) {
+        return bus.buyAggressors[slot(i)] ? OrderType.BUY : OrderType.SELL;
+    }
+}
@@ -0,0 +1,175 @@
+package event;
+
+import order.OrderType;
+import utils.SymbolRegistry;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Hands trades from the simulation over to the sinks. Trades are written into a fixed ring buffer of
+ * primitive arrays, and a single consumer thread passes everything flushed so far to the sinks as one batch.
+ * The simulation only waits when the sinks fall a whole buffer behind.
+ * <p>
+ * Trades must be published from one thread at a time. Sinks have to be added before the first flush.
+ */
+public class TradeBus implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final long IDLE_PARK_NANOS = 1_000_000;
+    private static final long FULL_PARK_NANOS = 10_000;
+
+    final SymbolRegistry symbols;
+    final int[] rounds;
+    final int[] stockIndices;
+    final int[] prices;
+    final int[] quantities;
+    final int[] buyerIds;
+    final int[] sellerIds;
+    final boolean[] buyAggressors;
+    private final int mask;
+
+    private final List<TradeSink> sinks = new ArrayList<>();
+    private Thread consumer;
+
+    private long written = 0; // only seen by the publishing thread
+    private long knownConsumed = 0; // last consumed value the publishing thread has seen
+    private volatile long flushed = 0;
+    private volatile long consumed = 0;
+    private volatile boolean closing = false;
+    private volatile Throwable failure;
+
+    public TradeBus(SymbolRegistry symbols) {
+        this(symbols, DEFAULT_CAPACITY);
+    }
+
+    public TradeBus(SymbolRegistry symbols, int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        this.symbols = symbols;
+        rounds = new int[capacity];
+        stockIndices = new int[capacity];
+        prices = new int[capacity];
+        quantities = new int[capacity];
+        buyerIds = new int[capacity];
+        sellerIds = new int[capacity];
+        buyAggressors = new boolean[capacity];
+        mask = capacity - 1;
+    }
+
+    public void addSink(TradeSink sink) {
+        if (consumer != null) {
+            throw new IllegalStateException("Sinks must be added before trades are flushed");
+        }
+        sinks.add(sink);
+    }
+
+    int slot(long position) {
+        return (int) position & mask;
+    }
+
+    public void publish(int round, int stockIndex, int price, int quantity, int buyerId, int sellerId,
+                        OrderType aggressor) {
+        if (written - knownConsumed == rounds.length) {
+            awaitSpace();
+        }
+        int slot = slot(written);
+        rounds[slot] = round;
+        stockIndices[slot] = stockIndex;
+        prices[slot] = price;
+        quantities[slot] = quantity;
+        buyerIds[slot] = buyerId;
+        sellerIds[slot] = sellerId;
+        buyAggressors[slot] = aggressor == OrderType.BUY;
+        written++;
+    }
+
+    private void awaitSpace() {
+        flush();
+        while ((knownConsumed = consumed) == written - rounds.length) {
+            LockSupport.parkNanos(FULL_PARK_NANOS);
+        }
+    }
+
+    /**
+     * Makes everything published so far visible to the sinks.
+     */
+    public void flush() {
+        if (consumer == null) {
+            consumer = new Thread(this::consume, "trade-bus");
+            consumer.setDaemon(true);
+            consumer.start();
+        }
+        if (flushed != written) {
+            flushed = written;
+            LockSupport.unpark(consumer);
+        }
+    }
+
+    private void consume() {
+        TradeBatch batch = new TradeBatch(this);
+        long start = 0;
+        while (true) {
+            // Read closing first, so a closed bus is only left once everything flushed before closing is handled
+            boolean done = closing;
+            long end = flushed;
+            if (end == start) {
+                if (done) {
+                    return;
+                }
+                LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                continue;
+            }
+
+            if (failure == null) {
+                batch.set(start, (int) (end - start));
+                try {
+                    for (TradeSink sink : sinks) {
+                        sink.onTrades(batch);
+                    }
+                } catch (Throwable e) {
+                    // Keep draining, so the simulation never waits for a dead sink; close() reports it
+                    failure = e;
+                }
+            }
+            start = end;
+            consumed = end;
+        }
+    }
+
+    /**
+     * Delivers all published trades and closes the sinks. Rethrows the first failure of a sink.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+        closing = true;
+        LockSupport.unpark(consumer);
+        try {
+            consumer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for trades to be delivered", e);
+        }
+
+        for (TradeSink sink : sinks) {
+            try {
+                sink.close();
+            } catch (IOException e) {
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+
+        if (failure instanceof IOException e) {
+            throw e;
+        } else if (failure instanceof RuntimeException e) {
+            throw e;
+        } else if (failure instanceof Error e) {
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package event;
+
+import io.InputInfo;
+import io.InputReader;
+import order.OrderType;
+import org.junit.jupiter.api.Test;
+import system.MatchingMode;
+import system.SESystem;
+import utils.SymbolRegistry;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TradeBusTest {
+
+    @Test
+    void publish() throws IOException {
+        SymbolRegistry symbols = new SymbolRegistry(List.of("ABC", "DEF"));
+        // A small buffer, so it wraps around many times and the publisher has to wait for the sink
+        TradeBus bus = new TradeBus(symbols, 8);
+        List<String> trades = new ArrayList<>();
+        bus.addSink(batch -> {
+            for (int i = 0; i < batch.size(); i++) {
+                trades.add(batch.getRound(i) + " " + batch.getSymbol(i) + " " + batch.getPrice(i) + " "
+                        + batch.getQuantity(i) + " " + batch.getBuyerId(i) + " " + batch.getSellerId(i) + " "
+                        + batch.getAggressor(i));
+            }
+        });
+        StringWriter csv = new StringWriter();
+        bus.addSink(new CsvTradeSink(csv));
+
+        for (int i = 0; i < 1000; i++) {
+            bus.publish(i / 10, i % 2, 100 + i, i + 1, i, i + 1, i % 3 == 0 ? OrderType.BUY : OrderType.SELL);
+            if (i % 7 == 0) {
+                bus.flush();
+            }
+        }
+        bus.close();
+
+        assertEquals(1000, trades.size());
+        assertEquals("0 ABC 100 1 0 1 BUY", trades.get(0));
+        assertEquals("99 DEF 1099 1000 999 1000 BUY", trades.get(999));
+        assertEquals("0 DEF 101 2 1 2 SELL", trades.get(1));
+
+        String[] lines = csv.toString().split("\n");
+        assertEquals(1001, lines.length);
+        assertEquals("round,symbol,price,quantity,buyer,seller,aggressor", lines[0]);
+        assertEquals("0,ABC,100,1,0,1,BUY", lines[1]);
+
+        assertThrows(IllegalStateException.class, () -> bus.addSink(batch -> {}));
+    }
+
+    @Test
+    void sinkFailure() {
+        TradeBus bus = new TradeBus(new SymbolRegistry(List.of("ABC")), 4);
+        bus.addSink(batch -> {
+            throw new IOException("disk full");
+        });
+        // The simulation must not get stuck on a failed sink
+        for (int i = 0; i < 100; i++) {
+            bus.publish(0, 0, 1, 1, 0, 1, OrderType.BUY);
+        }
+        IOException e = assertThrows(IOException.class, bus::close);
+        assertEquals("disk full", e.getMessage());
+    }
+
+    @Test
+    void systemTrades() throws InputReader.InputException {
+        for (MatchingMode mode : MatchingMode.values()) {
+            InputInfo info = InputReader.readInput(new String[]{"system/testfiles/testMoodle.txt", "300"});
+            info.setSeed(5);
+            info.setMatchingMode(mode);
+            info.setThreadCount(4);
+
+            SESystem system = new SESystem(info);
+            int[] tradeCount = {0};
+            int[] lastRound = {0};
+            system.addTradeSink(batch -> {
+                for (int i = 0; i < batch.size(); i++) {
+                    assertTrue(batch.getRound(i) >= lastRound[0]);
+                    lastRound[0] = batch.getRound(i);
+                }
+                tradeCount[0] += batch.size();
+            });
+            system.run();
+            system.close();
+
+            assertTrue(system.getTotalTransactionCount() > 0);
+            assertEquals(system.getTotalTransactionCount(), tradeCount[0]);
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package event;
+
+import java.io.IOException;
+
+/**
+ * Receives the trades published on a {@link TradeBus}, a batch at a time, on the bus's own thread.
+ */
+public interface TradeSink {
+    /**
+     * Called with every batch of trades, in the order they were closed.
+     * The batch is only valid during the call, it is reused for the next one.
+     */
+    void onTrades(TradeBatch trades) throws IOException;
+
+    default void close() throws IOException {
+    }
+}
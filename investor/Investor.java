@@ -1,44 +1,111 @@
 package investor;
 
+import order.OrderBuffer;
+import order.OrderInfo;
+import order.OrderPool;
 import order.StockOrder;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Optional;
+import java.util.random.RandomGenerator;
 import system.SESystem;
+import utils.SplitMixRandom;
+
 public abstract class Investor {
     public static class CannotMakeOrderException extends Exception {
         public CannotMakeOrderException(String message) {
             super(message);
         }
     }
-     protected Map<String, Integer> stocks;
+     protected Portfolio portfolio;
      protected int cash;
+     protected int reservedCash = 0; // set aside for resting buy orders, not part of cash
      protected SESystem system;
+     protected final RandomGenerator random; // this investor's own stream, split from the simulation's generator
      protected int totalBuys = 0;
      protected int totalSells = 0;
-     protected static int lastId = 0;
-     protected int id = lastId;
+     protected int id; // unique within the system
      protected int startNetWorth;
+     private final OrderBuffer decisions = new OrderBuffer(); // emptied by the system after every round
+     private final OrderPool orderPool = new OrderPool(); // orders the system is done with come back here
+     private OrderInfo orderInfo; // reused by every decision
 
-    public Investor(SESystem system, Map<String, Integer> walletStocks, int walletCashCount) {
+    public Investor(SESystem system, Map<String, Integer> walletStocks, int walletCashCount, RandomGenerator random) {
         this.system = system;
-        this.stocks = new HashMap<>(walletStocks);
-        for (Map.Entry<String, Integer> entry : stocks.entrySet()) {
-            if (entry.getValue() == 0) {
-                stocks.remove(entry.getKey());
-            }
-        }
+        this.random = random;
+        this.id = system.nextInvestorId();
+        this.portfolio = new Portfolio(system.getSymbols().toArray(walletStocks));
         this.cash = walletCashCount;
-        lastId++;
         startNetWorth = calculateNetWorth();
     }
 
     public abstract Optional<StockOrder> decideAndOrder();
+
+    /**
+     * Decides this round's orders and cancels. Strategies that trade several stocks at once override this
+     * and add as many orders as they like; by default it is the single order of {@link #decideAndOrder()}.
+     */
+    protected void decideOrders(OrderBuffer buffer) {
+        decideAndOrder().ifPresent(buffer::add);
+    }
+
+    /**
+     * Fills the investor's buffer with this round's decisions and returns it. The system empties it once
+     * it has taken them.
+     */
+    public OrderBuffer decide() {
+        decideOrders(decisions);
+        return decisions;
+    }
+
+    public OrderBuffer getDecisions() {
+        return decisions;
+    }
+
+    public abstract InvestorType getType();
+
+    /**
+     * Called by the system when it accepts an order of this investor, once the order has its id.
+     * Orders are reused once they leave the book, so keep the id rather than the order.
+     */
+    public void onOrderAccepted(StockOrder order) {
+    }
+
+    /**
+     * Asks the system to cancel a resting order of this investor, along with this round's decisions:
+     * the system cancels first and only then looks at the new orders, which can use what the cancelled
+     * orders had reserved. Orders that already left the book are ignored.
+     */
+    protected void cancel(long orderId) {
+        decisions.cancel(orderId);
+    }
+
+    /**
+     * Cancels the resting order and returns one made from the info to place instead, the two are processed together.
+     * The new order may use what the cancelled one reserved, so its wallet check is left to the system.
+     * Returns empty, and cancels nothing, if the info doesn't make a valid order.
+     */
+    protected Optional<StockOrder> replace(long orderId, OrderInfo orderInfo) {
+        StockOrder newOrder = orderPool.acquire(orderInfo, false);
+        if (newOrder == null) {
+            return Optional.empty();
+        }
+        cancel(orderId);
+        return Optional.of(newOrder);
+    }
+
     public String toString() {
         ArrayList<String> stockStrings = new ArrayList<>();
-        stocks.forEach((k, v) -> stockStrings.add(k + ":" + v));
-        return id + ", Total: " + calculateNetWorth() + ", Cash: " + cash + ", Stocks: " + String.join(", ", stockStrings)
+        for (int i = 0; i < portfolio.getStockCount(); i++) {
+            if (portfolio.get(i) != 0) {
+                stockStrings.add(system.getSymbols().getSymbol(i) + ":" + portfolio.get(i));
+            }
+        }
+        return id + ", Total: " + calculateNetWorth() + ", Cash: " + (cash + reservedCash) + ", Stocks: " + String.join(", ", stockStrings)
                 + ", transactions: " + (totalBuys + totalSells);
     }
 
@@ -49,20 +116,64 @@ public abstract class Investor {
     public int getStartNetWorth() {
         return startNetWorth;
     }
+
+    /**
+     * Stocks held and not reserved for resting sell orders, like {@link #getCash()} is the cash not reserved.
+     */
     public int getStockCount(String stockID) {
-        return stocks.getOrDefault(stockID, 0);
+        int stockIndex = system.getSymbols().indexOf(stockID);
+        return stockIndex < 0 ? 0 : portfolio.getAvailable(stockIndex);
     }
 
-    public void pay(int amount) {
+    public int getStockCount(int stockIndex) {
+        return portfolio.getAvailable(stockIndex);
+    }
+
+    public int getReservedStockCount(int stockIndex) {
+        return portfolio.getReserved(stockIndex);
+    }
+
+    public void reserveCash(int amount) {
         cash -= amount;
+        reservedCash += amount;
+    }
+
+    public void releaseReservedCash(int amount) {
+        reservedCash -= amount;
+        cash += amount;
+    }
+
+    public void payReserved(int amount) {
+        reservedCash -= amount;
         totalBuys++;
     }
 
-    public void pay(String stockID, int amount) {
-        stocks.put(stockID, stocks.get(stockID) - amount);
-        if (stocks.get(stockID) == 0) {
-            stocks.remove(stockID);
-        }
+    public int getReservedCash() {
+        return reservedCash;
+    }
+
+    public void reserveStock(int stockIndex, int amount) {
+        portfolio.reserve(stockIndex, amount);
+    }
+
+    public void releaseReservedStock(int stockIndex, int amount) {
+        portfolio.release(stockIndex, amount);
+    }
+
+    // Only change the quantity of one stock, safe to call for different stocks from different threads.
+    // settleStock has to be called once no other thread touches the investor.
+    public void payUnsettled(int stockIndex, int amount) {
+        // Sold stocks always come from the reservation of the sell order
+        portfolio.release(stockIndex, amount);
+        portfolio.adjust(stockIndex, -amount);
+    }
+
+    public void receiveUnsettled(int stockIndex, int amount) {
+        portfolio.adjust(stockIndex, amount);
+    }
+
+    public void settleStock(int stockIndex) {
+        portfolio.sync(stockIndex);
     }
 
     public void receive(int amount) {
@@ -70,19 +181,77 @@ public abstract class Investor {
         cash += amount;
     }
 
-    public void receive(String stockID, int amount) {
-        stocks.put(stockID, stocks.getOrDefault(stockID, 0) + amount);
-    }
-
     public int getId() {
         return id;
     }
 
     public int calculateNetWorth() {
         int total = 0;
-        for (Map.Entry<String, Integer> entry : stocks.entrySet()) {
-            total += system.getStockPrice(entry.getKey()) * entry.getValue();
+        for (int i = 0; i < portfolio.getHeldCount(); i++) {
+            int stockIndex = portfolio.getHeldStock(i);
+            total += system.getStockPrice(stockIndex) * portfolio.get(stockIndex);
         }
-        return total + cash;
+        return total + cash + reservedCash;
+    }
+
+    /**
+     * Saves everything that changes while the simulation runs. The generator has to be a SplitMixRandom.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(id);
+        out.writeInt(cash);
+        out.writeInt(reservedCash);
+        out.writeInt(totalBuys);
+        out.writeInt(totalSells);
+        out.writeInt(startNetWorth);
+        portfolio.writeState(out);
+        SplitMixRandom.saveable(random).writeState(out);
+        writeStrategyState(out);
+    }
+
+    public void readState(DataInput in) throws IOException {
+        id = in.readInt();
+        cash = in.readInt();
+        reservedCash = in.readInt();
+        totalBuys = in.readInt();
+        totalSells = in.readInt();
+        startNetWorth = in.readInt();
+        portfolio.readState(in);
+        SplitMixRandom.saveable(random).readState(in);
+        readStrategyState(in);
+    }
+
+    // The state of a strategy, saved after the common state
+    protected abstract void writeStrategyState(DataOutput out) throws IOException;
+
+    protected abstract void readStrategyState(DataInput in) throws IOException;
+
+    /**
+     * Returns the investor's order info, cleared, to describe the next order with.
+     * There is only one, an order made from it doesn't depend on it anymore.
+     */
+    protected OrderInfo newOrderInfo() {
+        if (orderInfo == null) {
+            orderInfo = new OrderInfo();
+        }
+        orderInfo.clear();
+        return orderInfo;
+    }
+
+    /**
+     * Makes an order from the info, reusing one the system is done with when possible.
+     * Returns null if the info doesn't make a valid order, without allocating anything.
+     */
+    protected StockOrder newOrder(OrderInfo orderInfo) {
+        return orderPool.acquire(orderInfo);
+    }
+
+    public OrderPool getOrderPool() {
+        return orderPool;
+    }
+
+    protected void setStock(OrderInfo orderInfo, int stockIndex) {
+        orderInfo.setStockIndex(stockIndex);
+        orderInfo.setStockID(system.getSymbols().getSymbol(stockIndex));
     }
 }
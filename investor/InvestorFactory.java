@@ -1,8 +1,11 @@
 package investor;
 
 import system.SESystem;
+import utils.SplitMixRandom;
 
 import java.util.Map;
+import java.util.Random;
+import java.util.random.RandomGenerator;
 
 public class InvestorFactory {
     public static class UnhandledInvestorTypeException extends Exception {
@@ -11,9 +14,14 @@ public class InvestorFactory {
         }
     }
     public static Investor createInvestor(InvestorType type, SESystem system, Map<String, Integer> walletStocks, int walletCashCount) throws UnhandledInvestorTypeException {
+        return createInvestor(type, system, walletStocks, walletCashCount, new SplitMixRandom(new Random().nextLong()));
+    }
+
+    public static Investor createInvestor(InvestorType type, SESystem system, Map<String, Integer> walletStocks, int walletCashCount,
+                                          RandomGenerator random) throws UnhandledInvestorTypeException {
         return switch (type) {
-            case SMA -> new SMAInvestor(system, walletStocks, walletCashCount);
-            case RANDOM -> new RandomInvestor(system, walletStocks, walletCashCount);
+            case SMA -> new SMAInvestor(system, walletStocks, walletCashCount, random);
+            case RANDOM -> new RandomInvestor(system, walletStocks, walletCashCount, random);
             default -> throw new UnhandledInvestorTypeException("Unhandled InvestorType: " + type);
         };
     }
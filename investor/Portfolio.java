@@ -0,0 +1,188 @@
+package investor;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Quantities of every stock an investor holds, indexed by stock index.
+ * Alongside the quantities it keeps a compact list of the stocks held in a non-zero quantity,
+ * so picking a held stock is O(1) and valuing the portfolio only looks at what is actually held.
+ * Every stock knows its place in that list, so keeping the list up to date is O(1) as well.
+ * Part of a quantity can be reserved for resting sell orders; it is still held until it is sold.
+ */
+public class Portfolio {
+    private final int[] quantities;
+    // The first heldCount entries are the indices of the stocks with a non-zero quantity, in no particular order
+    private int[] heldStocks;
+    private int heldCount = 0;
+    private final int[] positionInHeld; // indexed by stock index, NOT_HELD for stocks missing from heldStocks
+    private static final int NOT_HELD = -1;
+    private int[] reserved; // indexed by stock index like the quantities, null until something is reserved
+
+    public Portfolio(int[] quantities) {
+        this.quantities = quantities.clone();
+        int nonZeroCount = (int) Arrays.stream(quantities).filter(quantity -> quantity != 0).count();
+        heldStocks = new int[Math.max(4, nonZeroCount)];
+        positionInHeld = new int[quantities.length];
+        Arrays.fill(positionInHeld, NOT_HELD);
+        for (int i = 0; i < quantities.length; i++) {
+            if (quantities[i] != 0) {
+                addHeld(i);
+            }
+        }
+    }
+
+    public int get(int stockIndex) {
+        return quantities[stockIndex];
+    }
+
+    public int getReserved(int stockIndex) {
+        return reserved == null ? 0 : reserved[stockIndex];
+    }
+
+    /**
+     * The quantity held and not reserved, which new sell orders can still be placed for.
+     */
+    public int getAvailable(int stockIndex) {
+        return quantities[stockIndex] - getReserved(stockIndex);
+    }
+
+    public void reserve(int stockIndex, int amount) {
+        if (reserved == null) {
+            reserved = new int[quantities.length];
+        }
+        reserved[stockIndex] += amount;
+    }
+
+    /**
+     * Frees a reserved quantity. Only touches the one stock, like {@link #adjust(int, int)}.
+     */
+    public void release(int stockIndex, int amount) {
+        reserved[stockIndex] -= amount;
+    }
+
+    public void add(int stockIndex, int amount) {
+        int before = quantities[stockIndex];
+        quantities[stockIndex] += amount;
+        if (before == 0 && quantities[stockIndex] != 0) {
+            addHeld(stockIndex);
+        }
+    }
+
+    public void remove(int stockIndex, int amount) {
+        quantities[stockIndex] -= amount;
+        if (quantities[stockIndex] == 0) {
+            removeHeld(stockIndex);
+        }
+    }
+
+    /**
+     * Changes a quantity without updating the list of held stocks, so that different stocks can be
+     * changed from different threads. {@link #sync(int)} has to be called for the stock afterwards.
+     */
+    public void adjust(int stockIndex, int amount) {
+        quantities[stockIndex] += amount;
+    }
+
+    /**
+     * Brings the list of held stocks up to date with the quantity of the given stock.
+     */
+    public void sync(int stockIndex) {
+        boolean isListed = positionInHeld[stockIndex] != NOT_HELD;
+        if (!isListed && quantities[stockIndex] != 0) {
+            addHeld(stockIndex);
+        } else if (isListed && quantities[stockIndex] == 0) {
+            removeHeld(stockIndex);
+        }
+    }
+
+    public int getStockCount() {
+        return quantities.length;
+    }
+
+    public int getHeldCount() {
+        return heldCount;
+    }
+
+    /**
+     * Returns the index of the n-th held stock, n being between 0 and getHeldCount() - 1.
+     */
+    public int getHeldStock(int n) {
+        return heldStocks[n];
+    }
+
+    public boolean isEmpty() {
+        return heldCount == 0;
+    }
+
+    /**
+     * Saves the quantities, the reserved ones and the list of held stocks, in its current order, which random choices depend on.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(quantities.length);
+        for (int quantity : quantities) {
+            out.writeInt(quantity);
+        }
+        out.writeInt(heldCount);
+        for (int i = 0; i < heldCount; i++) {
+            out.writeInt(heldStocks[i]);
+        }
+        out.writeBoolean(reserved != null);
+        if (reserved != null) {
+            for (int quantity : reserved) {
+                out.writeInt(quantity);
+            }
+        }
+    }
+
+    public void readState(DataInput in) throws IOException {
+        int stockCount = in.readInt();
+        if (stockCount != quantities.length) {
+            throw new IOException("Saved portfolio of " + stockCount + " stocks, expected " + quantities.length);
+        }
+        for (int i = 0; i < stockCount; i++) {
+            quantities[i] = in.readInt();
+        }
+        heldCount = in.readInt();
+        if (heldCount < 0 || heldCount > stockCount) {
+            throw new IOException("Bad number of held stocks: " + heldCount);
+        }
+        heldStocks = new int[Math.max(4, heldCount)];
+        Arrays.fill(positionInHeld, NOT_HELD);
+        for (int i = 0; i < heldCount; i++) {
+            heldStocks[i] = in.readInt();
+            if (heldStocks[i] < 0 || heldStocks[i] >= stockCount || positionInHeld[heldStocks[i]] != NOT_HELD) {
+                throw new IOException("Bad held stock: " + heldStocks[i]);
+            }
+            positionInHeld[heldStocks[i]] = i;
+        }
+        reserved = in.readBoolean() ? new int[stockCount] : null;
+        if (reserved != null) {
+            for (int i = 0; i < stockCount; i++) {
+                reserved[i] = in.readInt();
+            }
+        }
+    }
+
+    private void addHeld(int stockIndex) {
+        if (heldCount == heldStocks.length) {
+            heldStocks = Arrays.copyOf(heldStocks, heldCount * 2);
+        }
+        positionInHeld[stockIndex] = heldCount;
+        heldStocks[heldCount++] = stockIndex;
+    }
+
+    private void removeHeld(int stockIndex) {
+        int position = positionInHeld[stockIndex];
+        if (position == NOT_HELD) {
+            return;
+        }
+        // The last stock of the list takes the place of the removed one
+        int last = heldStocks[--heldCount];
+        heldStocks[position] = last;
+        positionInHeld[last] = position;
+        positionInHeld[stockIndex] = NOT_HELD;
+    }
+}
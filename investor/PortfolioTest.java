@@ -0,0 +1,40 @@
+package investor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PortfolioTest {
+
+    @Test
+    void heldStocks() {
+        Portfolio portfolio = new Portfolio(new int[]{0, 5, 0, 2});
+        assertEquals(2, portfolio.getHeldCount());
+        assertEquals(5, portfolio.get(1));
+        assertEquals(0, portfolio.get(2));
+
+        portfolio.add(2, 3);
+        assertEquals(3, portfolio.getHeldCount());
+
+        portfolio.remove(1, 5);
+        assertEquals(2, portfolio.getHeldCount());
+        for (int i = 0; i < portfolio.getHeldCount(); i++) {
+            assertTrue(portfolio.get(portfolio.getHeldStock(i)) > 0);
+        }
+
+        portfolio.remove(2, 1);
+        assertEquals(2, portfolio.get(2));
+        assertEquals(2, portfolio.getHeldCount());
+
+        portfolio.remove(2, 2);
+        portfolio.remove(3, 2);
+        assertTrue(portfolio.isEmpty());
+
+        for (int i = 0; i < 4; i++) {
+            portfolio.add(i, 1);
+        }
+        portfolio.add(0, 1);
+        assertEquals(4, portfolio.getHeldCount());
+        assertEquals(2, portfolio.get(0));
+    }
+}
@@ -6,11 +6,15 @@ import order.OrderType;
 import order.StockOrder;
 import system.SESystem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 public class RandomInvestor extends Investor {
-    private final double orderChance;
-    private final double buyChance;
+    private double orderChance;
+    private double buyChance;
     private static final double ORDER_CHANCE_LOWER = 0.0001;
     private static final double ORDER_CHANCE_UPPER = 0.3;
     private static final double BUY_CHANCE_LOWER = 0.3;
@@ -26,23 +30,20 @@ public class RandomInvestor extends Investor {
     private static final int MAX_DUE_DATE = 50;
 
 
-    public RandomInvestor(SESystem system, Map<String, Integer> walletStocks, int walletCashCount) {
-        super(system, walletStocks, walletCashCount);
+    public RandomInvestor(SESystem system, Map<String, Integer> walletStocks, int walletCashCount, RandomGenerator random) {
+        super(system, walletStocks, walletCashCount, random);
         // gives the investors some diversity in their decision-making
-        Random random = new Random();
         orderChance = random.nextDouble(ORDER_CHANCE_LOWER, ORDER_CHANCE_UPPER);
         buyChance = random.nextDouble(BUY_CHANCE_LOWER, BUY_CHANCE_UPPER);
     }
 
     public Optional<StockOrder> decideAndOrder() {
-        Random random = new Random();
-
         // Randomly decide if we want to make an order
         if (random.nextDouble(0, 1) > orderChance) {
             return Optional.empty();
         }
 
-        OrderInfo orderInfo = new OrderInfo();
+        OrderInfo orderInfo = newOrderInfo();
 
         // Randomly choose between buying and selling
         if (random.nextDouble(0, 1) < buyChance) {
@@ -61,64 +62,69 @@ public class RandomInvestor extends Investor {
             return Optional.empty();
         }
 
-        try {
-            return Optional.of(new StockOrder(orderInfo));
-        } catch (Exception e) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(newOrder(orderInfo));
     }
 
-    private void setRandomValidStockID(Random random, OrderInfo orderInfo) throws CannotMakeOrderException {
+    private void setRandomValidStockID(RandomGenerator random, OrderInfo orderInfo) throws CannotMakeOrderException {
+        int stockCount = system.getSymbols().size();
         if (orderInfo.getType() == OrderType.BUY) {
             // We want to buy a stock that we can afford at least 1 unit of
-            String[] stockIDs = Arrays.stream(system.getStockIDs())
-                    .filter(stock -> system.getStockPrice(stock) <= cash)
-                    .toArray(String[]::new);
-            if (stockIDs.length == 0) {
+            int affordableCount = 0;
+            for (int i = 0; i < stockCount; i++) {
+                if (system.getStockPrice(i) <= cash) {
+                    affordableCount++;
+                }
+            }
+            if (affordableCount == 0) {
                 throw new CannotMakeOrderException("Cannot afford any stock");
             }
-            orderInfo.setStockID(stockIDs[random.nextInt(stockIDs.length)]);
+            setStock(orderInfo, nthAffordableStock(random.nextInt(affordableCount)));
         } else {
-            // we do not keep stock keys that have 0 quantity
-            if (stocks.isEmpty()) {
+            // the portfolio only lists stocks that we hold
+            if (portfolio.isEmpty()) {
                 throw new CannotMakeOrderException("No stocks to sell");
             }
-            orderInfo.setStockID(stocks.keySet().toArray(new String[0])[random.nextInt(stocks.size())]);
+            setStock(orderInfo, portfolio.getHeldStock(random.nextInt(portfolio.getHeldCount())));
+        }
+    }
+
+    private int nthAffordableStock(int n) {
+        for (int i = 0; ; i++) {
+            if (system.getStockPrice(i) <= cash && n-- == 0) {
+                return i;
+            }
         }
     }
 
-    private void setRandomPriceLimit(Random random, OrderInfo orderInfo) {
-        int stockMarketPrice = system.getStockPrice(orderInfo.getStockID());
+    private void setRandomPriceLimit(RandomGenerator random, OrderInfo orderInfo) {
+        int stockMarketPrice = system.getStockPrice(orderInfo.getStockIndex());
 
-        ArrayList<Integer> possibleVariations = new ArrayList<>();
+        // The variations that keep the price positive (and affordable, when buying) are always a single range
+        int lowestVariation;
+        int highestVariation;
         if (orderInfo.getType() == OrderType.BUY) {
-            for (int variation = BUY_VARIATION_LOWER; variation < BUY_VARIATION_UPPER + 1; variation++) {
-                if (stockMarketPrice + variation <= cash && stockMarketPrice + variation > 0) {
-                    possibleVariations.add(variation);
-                }
-            }
+            lowestVariation = Math.max(BUY_VARIATION_LOWER, 1 - stockMarketPrice);
+            highestVariation = Math.min(BUY_VARIATION_UPPER, cash - stockMarketPrice);
         } else {
-            for (int variation = SELL_VARIATION_LOWER; variation < SELL_VARIATION_UPPER + 1; variation++) {
-                if (stockMarketPrice + variation > 0) {
-                    possibleVariations.add(variation);
-                }
-            }
+            lowestVariation = Math.max(SELL_VARIATION_LOWER, 1 - stockMarketPrice);
+            highestVariation = SELL_VARIATION_UPPER;
         }
-        if (possibleVariations.isEmpty()) {
+        if (lowestVariation > highestVariation) {
             throw new RuntimeException("No possible variations");
         }
 
         // Calculate price limit based on stock price and variation
-        orderInfo.setPriceLimit(stockMarketPrice + possibleVariations.get(random.nextInt(possibleVariations.size())));
+        orderInfo.setPriceLimit(stockMarketPrice + lowestVariation
+                + random.nextInt(highestVariation - lowestVariation + 1));
     }
 
-    private void setRandomQuantity(Random random, OrderInfo orderInfo) throws CannotMakeOrderException {
+    private void setRandomQuantity(RandomGenerator random, OrderInfo orderInfo) throws CannotMakeOrderException {
         int maxQuantity;
         if (orderInfo.getType() == OrderType.BUY) {
             // Calculate max quantity we can buy
             maxQuantity = cash / orderInfo.getPriceLimit();
         } else {
-            maxQuantity = stocks.get(orderInfo.getStockID());
+            maxQuantity = portfolio.getAvailable(orderInfo.getStockIndex());
         }
 
         if (maxQuantity == 0) {
@@ -128,7 +134,7 @@ public class RandomInvestor extends Investor {
         orderInfo.setQuantity(random.nextInt(1, maxQuantity + 1));
     }
 
-    private void setRandomDueType(Random random, OrderInfo orderInfo) {
+    private void setRandomDueType(RandomGenerator random, OrderInfo orderInfo) {
         double dueTypeRandom = random.nextDouble(0, 1);
         if (dueTypeRandom < DUE_CHANCE) {
             orderInfo.setDueType(DueType.DUE);
@@ -147,6 +153,23 @@ public class RandomInvestor extends Investor {
     }
 
 
+    @Override
+    public InvestorType getType() {
+        return InvestorType.RANDOM;
+    }
+
+    @Override
+    protected void writeStrategyState(DataOutput out) throws IOException {
+        out.writeDouble(orderChance);
+        out.writeDouble(buyChance);
+    }
+
+    @Override
+    protected void readStrategyState(DataInput in) throws IOException {
+        orderChance = in.readDouble();
+        buyChance = in.readDouble();
+    }
+
     public String toString() {
         return super.toString() + ", order chance: " + orderChance + ", buy chance: " + buyChance;
     }
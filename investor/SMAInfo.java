@@ -1,67 +1,83 @@
 package investor;
 
 import system.SESystem;
-import java.util.LinkedList;
+import utils.RollingAverage;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class SMAInfo {
     private final SESystem system;
-    private final String stock;
-    private final LinkedList<Integer> sma5List = new LinkedList<>();
-    private final LinkedList<Integer> sma10List = new LinkedList<>();
+    private final int stockIndex;
+    private final RollingAverage shortSMA;
+    private final RollingAverage longSMA;
     private double signalStrength = 0;
     private boolean isReady = false;
-    private double prevSMA5;
-    private boolean wasSMA5Above;
+    private double prevShortSMA;
+    private boolean wasShortSMAAbove;
 
-    public SMAInfo(SESystem system, String stock) {
+    public SMAInfo(SESystem system, int stockIndex, int shortPeriod, int longPeriod) {
+        if (shortPeriod >= longPeriod) {
+            throw new IllegalArgumentException("Short SMA period must be shorter than the long one: "
+                    + shortPeriod + " >= " + longPeriod);
+        }
         this.system = system;
-        this.stock = stock;
+        this.stockIndex = stockIndex;
+        shortSMA = new RollingAverage(shortPeriod);
+        longSMA = new RollingAverage(longPeriod);
     }
 
     public void updateSMA() {
-        sma5List.addLast(system.getStockPrice(stock));
-        sma10List.addLast(system.getStockPrice(stock));
-
-        if (sma5List.size() > 5) {
-            sma5List.removeFirst();
-        }
-
-        if (sma10List.size() > 10) {
-            sma10List.removeFirst();
-        }
-
-        double sma5, sma10;
+        int stockPrice = system.getStockPrice(stockIndex);
+        shortSMA.add(stockPrice);
+        longSMA.add(stockPrice);
 
         if (!isReady) {
-            if (sma10List.size() == 10) {
+            if (longSMA.isFull()) {
                 isReady = true;
-                sma5 = sma5List.stream().mapToInt(Integer::intValue).average().orElse(0);
-                sma10 = sma10List.stream().mapToInt(Integer::intValue).average().orElse(0);
-                wasSMA5Above = sma5 > sma10;
-                prevSMA5 = sma5;
+                wasShortSMAAbove = shortSMA.getAverage() > longSMA.getAverage();
+                prevShortSMA = shortSMA.getAverage();
             }
-            // no signal for now as this is the first time sma10 is calculated or sma10 is not ready yet
+            // no signal for now as this is the first time the long SMA is calculated or it is not ready yet
             return;
         }
 
+        double shortAverage = shortSMA.getAverage();
+        double longAverage = longSMA.getAverage();
 
-        sma5 = sma5List.stream().mapToInt(Integer::intValue).average().orElse(0);
-        sma10 = sma10List.stream().mapToInt(Integer::intValue).average().orElse(0);
-
-        boolean isSMA5Above = sma5 > sma10;
-        boolean isSignal = wasSMA5Above != isSMA5Above;
-        double signalStrengthAbs = Math.abs(sma5 - prevSMA5);
+        boolean isShortSMAAbove = shortAverage > longAverage;
+        boolean isSignal = wasShortSMAAbove != isShortSMAAbove;
+        double signalStrengthAbs = Math.abs(shortAverage - prevShortSMA);
 
-        wasSMA5Above = isSMA5Above;
-        prevSMA5 = sma5;
+        wasShortSMAAbove = isShortSMAAbove;
+        prevShortSMA = shortAverage;
 
-        signalStrength = isSignal ? (isSMA5Above ? signalStrengthAbs : -signalStrengthAbs) : 0;
+        signalStrength = isSignal ? (isShortSMAAbove ? signalStrengthAbs : -signalStrengthAbs) : 0;
         // signalStrength is 0 if there is no signal
-        // signalStrength is positive if sma5 crosses above sma10 - buy signal
-        // signalStrength is negative if sma5 crosses below sma10 - sell signal
+        // signalStrength is positive if the short SMA crosses above the long one - buy signal
+        // signalStrength is negative if the short SMA crosses below the long one - sell signal
     }
 
     public double getSignalStrength() {
         return signalStrength;
     }
+
+    public void writeState(DataOutput out) throws IOException {
+        shortSMA.writeState(out);
+        longSMA.writeState(out);
+        out.writeDouble(signalStrength);
+        out.writeBoolean(isReady);
+        out.writeDouble(prevShortSMA);
+        out.writeBoolean(wasShortSMAAbove);
+    }
+
+    public void readState(DataInput in) throws IOException {
+        shortSMA.readState(in);
+        longSMA.readState(in);
+        signalStrength = in.readDouble();
+        isReady = in.readBoolean();
+        prevShortSMA = in.readDouble();
+        wasShortSMAAbove = in.readBoolean();
+    }
 }
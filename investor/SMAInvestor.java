@@ -6,21 +6,29 @@ import order.OrderType;
 import order.StockOrder;
 import system.SESystem;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.util.*;
+import java.util.random.RandomGenerator;
 
 public class SMAInvestor extends Investor {
     private static final int SMA_PERIOD = 5;
-    private final double aggression;
+    private static final int NO_STOCK = -1;
+    private double aggression;
     private static final double AGGRESSION_LOWER = 0.5;
     private static final double AGGRESSION_UPPER = 2;
     private double strongestSignalAbs = 0;
-    public SMAInvestor(SESystem system, Map<String, Integer> walletStocks, int walletCashCount) {
-        super(system, walletStocks, walletCashCount);
-        Random random = new Random();
+    // The last order accepted, which may still be resting
+    private long lastOrderId = StockOrder.NO_ID;
+    private OrderType lastOrderType;
+    private int lastOrderStock = NO_STOCK;
+    public SMAInvestor(SESystem system, Map<String, Integer> walletStocks, int walletCashCount, RandomGenerator random) {
+        super(system, walletStocks, walletCashCount, random);
         aggression = random.nextDouble(AGGRESSION_LOWER, AGGRESSION_UPPER);
     }
     public Optional<StockOrder> decideAndOrder() {
-        OrderInfo orderInfo = new OrderInfo();
+        OrderInfo orderInfo = newOrderInfo();
 
         double bestSignalOverall;
         try {
@@ -29,6 +37,13 @@ public class SMAInvestor extends Investor {
             return Optional.empty();
         }
 
+        // Once the signal points elsewhere the last order only holds on to our cash or stocks
+        if (lastOrderId != StockOrder.NO_ID
+                && (orderInfo.getType() != lastOrderType || orderInfo.getStockIndex() != lastOrderStock)) {
+            cancel(lastOrderId);
+            lastOrderId = StockOrder.NO_ID;
+        }
+
         // The stronger the signal the more we are willing to waste on the stock to get it as fast as possible
         // Scaled from 0 to 1
         double signalScaleFactor = Math.min(Math.abs(bestSignalOverall) * aggression / strongestSignalAbs, 1);
@@ -39,30 +54,26 @@ public class SMAInvestor extends Investor {
         orderInfo.setDueDate(system.getCurrentRound() + SMA_PERIOD);
         orderInfo.setInvestor(this);
 
-        try {
-            return Optional.of(new StockOrder(orderInfo));
-        } catch (StockOrder.BadOrderException e) {
-            return Optional.empty();
-        }
+        return Optional.ofNullable(newOrder(orderInfo));
     }
 
     private double setBestStockAndGetSignal(OrderInfo orderInfo) throws CannotMakeOrderException {
-        String[] stockIDs = system.getStockIDs();
+        int stockCount = system.getSymbols().size();
 
-        String bestStockSell = null;
-        String bestStockBuy = null;
+        int bestStockSell = NO_STOCK;
+        int bestStockBuy = NO_STOCK;
         double bestSignalSell = 0;
         double bestSignalBuy = 0;
 
-        for (String stockID : stockIDs) {
+        for (int stockIndex = 0; stockIndex < stockCount; stockIndex++) {
             // SMA signal strength is the product of the stock price and the SMA signal strength
-            double newSignal = system.getSMASignalStrength(stockID) * system.getStockPrice(stockID);
+            double newSignal = system.getSMASignalStrength(stockIndex) * system.getStockPrice(stockIndex);
             if (newSignal > bestSignalBuy) {
-                bestStockBuy = stockID;
+                bestStockBuy = stockIndex;
                 bestSignalBuy = newSignal;
             }
             if (newSignal < bestSignalSell) {
-                bestStockSell = stockID;
+                bestStockSell = stockIndex;
                 bestSignalSell = newSignal;
             }
         }
@@ -74,36 +85,36 @@ public class SMAInvestor extends Investor {
             strongestSignalAbs = bestSignalBuy;
         }
 
-        if (bestStockSell == null && bestStockBuy == null) {
+        if (bestStockSell == NO_STOCK && bestStockBuy == NO_STOCK) {
             throw new CannotMakeOrderException("No stocks to buy or sell with SMA signal");
         }
 
         double bestSignalOverall;
         // Best signal is the one with the highest absolute value and the one that we can afford
-        if (bestStockSell == null || getStockCount(bestStockSell) == 0) {
-            orderInfo.setStockID(bestStockBuy);
+        if (bestStockSell == NO_STOCK || getStockCount(bestStockSell) == 0) {
+            if (bestStockBuy == NO_STOCK) {
+                throw new CannotMakeOrderException("No stocks to buy or sell with SMA signal");
+            }
+            setStock(orderInfo, bestStockBuy);
             bestSignalOverall = bestSignalBuy;
             orderInfo.setType(OrderType.BUY);
-        } else if (bestStockBuy == null || system.getStockPrice(bestStockBuy) > cash) {
-            orderInfo.setStockID(bestStockSell);
+        } else if (bestStockBuy == NO_STOCK || system.getStockPrice(bestStockBuy) > cash) {
+            setStock(orderInfo, bestStockSell);
             bestSignalOverall = bestSignalSell;
             orderInfo.setType(OrderType.SELL);
         }
         else {
             if (Math.abs(bestSignalBuy) - Math.abs(bestSignalSell) > 0) {
-                orderInfo.setStockID(bestStockBuy);
+                setStock(orderInfo, bestStockBuy);
                 bestSignalOverall = bestSignalBuy;
                 orderInfo.setType(OrderType.BUY);
             } else {
-                orderInfo.setStockID(bestStockSell);
+                setStock(orderInfo, bestStockSell);
                 bestSignalOverall = bestSignalSell;
                 orderInfo.setType(OrderType.SELL);
             }
         }
 
-        if (orderInfo.getStockID() == null) {
-            throw new CannotMakeOrderException("No stocks to buy or sell with SMA signal");
-        }
         return bestSignalOverall;
     }
 
@@ -113,20 +124,51 @@ public class SMAInvestor extends Investor {
             variation = -variation;
         }
 
-        orderInfo.setPriceLimit(system.getStockPrice(orderInfo.getStockID()) + variation);
+        orderInfo.setPriceLimit(system.getStockPrice(orderInfo.getStockIndex()) + variation);
     }
 
     private void setQuantity(OrderInfo orderInfo, double signalScaleFactor) {
         int maxQuantity;
         if (orderInfo.getType() == OrderType.BUY) {
-            maxQuantity = (int)Math.floor((double)cash / system.getStockPrice(orderInfo.getStockID()));
+            maxQuantity = (int)Math.floor((double)cash / system.getStockPrice(orderInfo.getStockIndex()));
         } else {
-            maxQuantity = getStockCount(orderInfo.getStockID());
+            maxQuantity = getStockCount(orderInfo.getStockIndex());
         }
 
         orderInfo.setQuantity((int)Math.ceil(signalScaleFactor * maxQuantity));
     }
 
+    @Override
+    public InvestorType getType() {
+        return InvestorType.SMA;
+    }
+
+    @Override
+    public void onOrderAccepted(StockOrder order) {
+        lastOrderId = order.getId();
+        lastOrderType = order.getType();
+        lastOrderStock = order.getStockIndex();
+    }
+
+    @Override
+    protected void writeStrategyState(DataOutput out) throws IOException {
+        out.writeDouble(aggression);
+        out.writeDouble(strongestSignalAbs);
+        out.writeLong(lastOrderId);
+        out.writeByte(lastOrderType == null ? -1 : lastOrderType.ordinal());
+        out.writeInt(lastOrderStock);
+    }
+
+    @Override
+    protected void readStrategyState(DataInput in) throws IOException {
+        aggression = in.readDouble();
+        strongestSignalAbs = in.readDouble();
+        lastOrderId = in.readLong();
+        int type = in.readByte();
+        lastOrderType = type < 0 ? null : OrderType.values()[type];
+        lastOrderStock = in.readInt();
+    }
+
     public String toString() {
         return super.toString() + ", SMA aggression: " + aggression;
     }
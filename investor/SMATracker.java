@@ -2,22 +2,52 @@ package investor;
 
 import system.SESystem;
 
-import java.util.Arrays;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class SMATracker {
-    private final Map<String, SMAInfo> smaInfoMap = new HashMap<>();
+    public static final int DEFAULT_SHORT_PERIOD = 5;
+    public static final int DEFAULT_LONG_PERIOD = 10;
+
+    // Indexed by stock index
+    private final SMAInfo[] smaInfos;
 
     public SMATracker(SESystem system) {
-        Arrays.stream(system.getStockIDs()).forEach(stock -> smaInfoMap.put(stock, new SMAInfo(system, stock)));
+        this(system, DEFAULT_SHORT_PERIOD, DEFAULT_LONG_PERIOD);
+    }
+
+    public SMATracker(SESystem system, int shortPeriod, int longPeriod) {
+        smaInfos = new SMAInfo[system.getSymbols().size()];
+        for (int i = 0; i < smaInfos.length; i++) {
+            smaInfos[i] = new SMAInfo(system, i, shortPeriod, longPeriod);
+        }
     }
 
     public void updateSMA() {
-        smaInfoMap.forEach((stock, smaInfo) -> smaInfo.updateSMA());
+        for (SMAInfo smaInfo : smaInfos) {
+            smaInfo.updateSMA();
+        }
+    }
+
+    public double getSignalStrength(int stockIndex) {
+        return smaInfos[stockIndex].getSignalStrength();
+    }
+
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(smaInfos.length);
+        for (SMAInfo smaInfo : smaInfos) {
+            smaInfo.writeState(out);
+        }
     }
 
-    public double getSignalStrength(String stock) {
-        return smaInfoMap.get(stock).getSignalStrength();
+    public void readState(DataInput in) throws IOException {
+        int stockCount = in.readInt();
+        if (stockCount != smaInfos.length) {
+            throw new IOException("Saved SMAs of " + stockCount + " stocks, expected " + smaInfos.length);
+        }
+        for (SMAInfo smaInfo : smaInfos) {
+            smaInfo.readState(in);
+        }
     }
 }
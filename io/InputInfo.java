@@ -1,15 +1,30 @@
 package io;
 
 import investor.InvestorType;
+import investor.SMATracker;
+import system.MatchingMode;
+import utils.SymbolRegistry;
 
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.Map;
+import java.util.Random;
 
 public class InputInfo {
     private Map<InvestorType, Integer> investorCounts;
     private Map<String, Integer> stockPrices;
+    private SymbolRegistry symbols;
     private int walletCashCount;
     private Map<String, Integer> walletStocks;
+    // Wallets of single investors, by type and index among the investors of the type; null for the common wallet
+    private final Map<InvestorType, Wallet[]> investorWallets = new EnumMap<>(InvestorType.class);
     private int roundCount;
+    private int smaShortPeriod = SMATracker.DEFAULT_SHORT_PERIOD;
+    private int smaLongPeriod = SMATracker.DEFAULT_LONG_PERIOD;
+    private MatchingMode matchingMode = MatchingMode.SEQUENTIAL;
+    private int threadCount = 1;
+    private boolean parallelDecisions = false;
+    private long seed = new Random().nextLong(); // printed with the input, so any run can be repeated with -Dseed
 
     public void setInvestorCounts(Map<InvestorType, Integer> investorCounts) {
         this.investorCounts = investorCounts;
@@ -19,6 +34,10 @@ public class InputInfo {
         this.stockPrices = stockPrices;
     }
 
+    public void setSymbols(SymbolRegistry symbols) {
+        this.symbols = symbols;
+    }
+
     public void setWalletCashCount(int walletCashCount) {
         this.walletCashCount = walletCashCount;
     }
@@ -27,14 +46,58 @@ public class InputInfo {
         this.walletStocks = walletStocks;
     }
 
+    /**
+     * Gives the investors of the given type with indices from {@code from} to {@code to}, inclusive,
+     * their own wallet instead of the common one. Investor counts have to be set first.
+     */
+    public void setInvestorWallets(InvestorType type, int from, int to, Wallet wallet) {
+        Wallet[] wallets = investorWallets.computeIfAbsent(type,
+                t -> new Wallet[investorCounts.getOrDefault(t, 0)]);
+        Arrays.fill(wallets, from, to + 1, wallet);
+    }
+
+    /**
+     * Returns the wallet of the index-th investor of the given type, or null if it starts with the common wallet.
+     */
+    public Wallet getInvestorWallet(InvestorType type, int index) {
+        Wallet[] wallets = investorWallets.get(type);
+        // Investor counts may have been raised after the wallets were set
+        return wallets == null || index >= wallets.length ? null : wallets[index];
+    }
+
     public void setRoundCount(int roundCount) {
         this.roundCount = roundCount;
     }
 
+    public void setSMAPeriods(int smaShortPeriod, int smaLongPeriod) {
+        this.smaShortPeriod = smaShortPeriod;
+        this.smaLongPeriod = smaLongPeriod;
+    }
+
+    public void setMatchingMode(MatchingMode matchingMode) {
+        this.matchingMode = matchingMode;
+    }
+
+    public void setThreadCount(int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    public void setParallelDecisions(boolean parallelDecisions) {
+        this.parallelDecisions = parallelDecisions;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
     public Map<String, Integer> getStockPrices() {
         return stockPrices;
     }
 
+    public SymbolRegistry getSymbols() {
+        return symbols;
+    }
+
     public Map<InvestorType, Integer> getInvestorCounts() {
         return investorCounts;
     }
@@ -44,7 +107,8 @@ public class InputInfo {
                "Stock prices: " + stockPrices + "\n" +
                "Wallet cash amount: " + walletCashCount + "\n" +
                "Wallet stocks: " + walletStocks + "\n" +
-                "Round count: " + roundCount;
+                "Round count: " + roundCount + "\n" +
+                "Seed: " + seed;
     }
 
     public Map<String, Integer> getWalletStocks() {
@@ -58,4 +122,28 @@ public class InputInfo {
     public int getRoundCount() {
         return roundCount;
     }
+
+    public int getSMAShortPeriod() {
+        return smaShortPeriod;
+    }
+
+    public int getSMALongPeriod() {
+        return smaLongPeriod;
+    }
+
+    public MatchingMode getMatchingMode() {
+        return matchingMode;
+    }
+
+    public int getThreadCount() {
+        return threadCount;
+    }
+
+    public boolean isParallelDecisions() {
+        return parallelDecisions;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
 }
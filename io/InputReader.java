@@ -1,35 +1,57 @@
 package io;
 
 import investor.InvestorType;
+import utils.SymbolRegistry;
 
-import java.io.File;
-import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 
+/**
+ * Reads the input file. Its first three lines, not counting empty ones and comments, are:
+ * <pre>
+ * R R S        investors, one type character each, or a count of them: R*900000 S*100000
+ * APL:145      stocks and their last prices
+ * 1000 APL:5   the wallet every investor starts with: cash and stocks
+ * </pre>
+ * They may be followed by wallets of chosen investors, which replace the common one. Investors are chosen by type
+ * and their index among the investors of that type, starting at 0; later lines win:
+ * <pre>
+ * S 5000 APL:1      every SMA investor
+ * R#0-99 200        the first hundred random investors, with no stocks
+ * R#7 0 APL:1000    the eighth random investor
+ * </pre>
+ * Any other line after the common wallet is ignored, as it always was. Unlike in the first versions of the
+ * reader, lines of nothing but whitespace are skipped like empty ones.
+ * The file is scanned straight from a memory mapping, see {@link InputTokenizer}.
+ */
 public class InputReader {
     public static class InputException extends Exception {
         public InputException(String message) {
             super(message);
         }
     }
+
+    private static final InvestorType[] INVESTOR_TYPES = InvestorType.values();
+
     public static InputInfo readInput(String[] args) throws InputException {
         if (args.length != 2) {
             throw new InputException("Invalid number of arguments");
         }
 
-        File file;
-        try {
-            file = new File(args[0]);
-        }
-        catch (NullPointerException e) {
+        if (args[0] == null) {
             throw new InputException("File name is null");
         }
 
-        Scanner lineReader;
-        try {
-            lineReader = new Scanner(file);
-        }
-        catch (FileNotFoundException e) {
+        ByteBuffer input;
+        try (FileChannel channel = FileChannel.open(Path.of(args[0]), StandardOpenOption.READ)) {
+            input = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } catch (IOException | InvalidPathException e) {
             throw new InputException("File not found");
         }
 
@@ -43,84 +65,148 @@ public class InputReader {
             throw new InputException("Invalid round count: " + args[1]);
         }
 
-        int inputLine = 0;
-        while (lineReader.hasNextLine()) {
-            String line = lineReader.nextLine();
-
-            // Skip empty lines and comments
-            if (line.isEmpty() || line.startsWith("#"))
-                continue;
-
-            switch (inputLine) {
-                case 0:
-                    // Read investors
-                    inputInfo.setInvestorCounts(parseInvestors(line));
-                    inputLine++;
-                    break;
-                case 1:
-                    // Read stock names and last prices
-                    inputInfo.setStocks(parseStocks(line));
-                    inputLine++;
-                    break;
-                case 2:
-                    inputInfo.setWalletCashCount(parseWalletCash(line));
-                    inputInfo.setWalletStocks(parseWalletStocks(line, inputInfo.getStockPrices()));
-                    inputLine++;
-                    // Read wallet starting amounts
-                    break;
-            }
-            if (inputLine == 3) {
-                break;
-            }
-        }
-        if (inputLine != 3) {
+        InputTokenizer tokenizer = new InputTokenizer(input);
+        if (!tokenizer.nextLine()) {
+            throw new InputException("Too few lines in input file");
+        }
+        // Read investors
+        inputInfo.setInvestorCounts(parseInvestors(tokenizer));
+
+        if (!tokenizer.nextLine()) {
             throw new InputException("Too few lines in input file");
         }
+        // Read stock names and last prices
+        Map<String, Integer> stockPrices = parseStocks(tokenizer);
+        inputInfo.setStocks(stockPrices);
+        inputInfo.setSymbols(new SymbolRegistry(stockPrices.keySet()));
+
+        if (!tokenizer.nextLine()) {
+            throw new InputException("Too few lines in input file");
+        }
+        // Read wallet starting amounts
+        inputInfo.setWalletCashCount(parseWalletCash(tokenizer));
+        if (!tokenizer.hasNextToken()) {
+            throw new InputException("Missing wallet stocks");
+        }
+        inputInfo.setWalletStocks(parseWalletStocks(tokenizer, stockPrices));
+
+        while (tokenizer.nextLine()) {
+            if (isWalletSection(tokenizer)) {
+                parseInvestorWallets(tokenizer, inputInfo);
+            }
+        }
 
         return inputInfo;
     }
 
-    private static Map<InvestorType, Integer> parseInvestors(String line) throws InputException {
-        InvestorType[] investorTypes = InvestorType.values();
-        Map<InvestorType, Integer> investorAmounts = new HashMap<>();
-
-        Scanner investorReader = new Scanner(line);
-        while (investorReader.hasNext()) {
-            String investor = investorReader.next();
-            if (investor.length() != 1) {
-                throw new InputException("Invalid investor specifier: " + investor);
-            }
-            char investorChar = investor.charAt(0);
-
-            // Find corresponding investor type, increment amount in map, and if not found - throw exception
-            boolean found = false;
-            for (InvestorType type : investorTypes) {
-                if (type.getUniqueChar() == investorChar) {
-                    investorAmounts.putIfAbsent(type, 0);
-                    investorAmounts.put(type, investorAmounts.get(type) + 1);
-                    found = true;
-                    break;
+    /**
+     * Parses investors given like in the first line of an input file, e.g. "R*900 S*100".
+     */
+    public static Map<InvestorType, Integer> parseInvestors(String investors) throws InputException {
+        InputTokenizer tokenizer = new InputTokenizer(ByteBuffer.wrap(investors.getBytes(StandardCharsets.UTF_8)));
+        if (!tokenizer.nextLine()) {
+            return new EnumMap<>(InvestorType.class);
+        }
+        return parseInvestors(tokenizer);
+    }
+
+    private static Map<InvestorType, Integer> parseInvestors(InputTokenizer tokenizer) throws InputException {
+        long[] counts = new long[INVESTOR_TYPES.length];
+
+        while (tokenizer.nextToken()) {
+            int length = tokenizer.tokenLength();
+            // The type character may take more than one byte, it is only decoded when it isn't ASCII
+            int charLength = Math.min(utf8Length(tokenizer.tokenByte(0)), length);
+            long count = 1;
+            // R*900000 stands for 900000 R's
+            if (length > charLength + 1 && tokenizer.tokenByte(charLength) == '*') {
+                try {
+                    count = tokenizer.parseTokenInt(charLength + 1, length);
+                } catch (NumberFormatException e) {
+                    throw new InputException("Invalid investor count: " + tokenizer.token());
                 }
+                if (count <= 0) {
+                    throw new InputException("Investor count must be positive: " + tokenizer.token());
+                }
+            } else if (length != charLength) {
+                throw new InputException("Invalid investor specifier: " + tokenizer.token());
             }
 
-            if (!found) {
-                throw new InputException("Invalid investor unique char: " + investorChar);
+            char uniqueChar;
+            if (tokenizer.tokenByte(0) >= 0) {
+                uniqueChar = (char) tokenizer.tokenByte(0);
+            } else {
+                String typeChar = tokenizer.tokenPart(0, charLength);
+                // Characters outside the BMP are two chars, which the old reader didn't take for one either
+                if (typeChar.length() != 1) {
+                    throw new InputException("Invalid investor specifier: " + tokenizer.token());
+                }
+                uniqueChar = typeChar.charAt(0);
             }
 
+            // Find corresponding investor type, and if not found - throw exception
+            int type = typeOf(uniqueChar);
+            if (type < 0) {
+                throw new InputException("Invalid investor unique char: " + uniqueChar);
+            }
+            counts[type] += count;
+            if (counts[type] > Integer.MAX_VALUE) {
+                throw new InputException("Too many investors: " + counts[type]);
+            }
+        }
+
+        Map<InvestorType, Integer> investorAmounts = new EnumMap<>(InvestorType.class);
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) {
+                investorAmounts.put(INVESTOR_TYPES[i], (int) counts[i]);
+            }
         }
         return investorAmounts;
     }
 
-    private static Map<String, Integer> parseStocks(String line) throws InputException {
-        Map<String, Integer> stockPrices = new HashMap<>();
-        Scanner stockReader = new Scanner(line);
-        while (stockReader.hasNext()) {
-            String stock = stockReader.next();
-            String[] nameAndPrice = stock.split(":");
-            if (nameAndPrice.length != 2) {
-                throw new InputException("Invalid stock format: " + stock);
+    /**
+     * Number of bytes of the UTF-8 character starting with the given byte.
+     */
+    private static int utf8Length(byte leadByte) {
+        if ((leadByte & 0xE0) == 0xC0) {
+            return 2;
+        }
+        if ((leadByte & 0xF0) == 0xE0) {
+            return 3;
+        }
+        if ((leadByte & 0xF8) == 0xF0) {
+            return 4;
+        }
+        return 1;
+    }
+
+    // Takes an int, so that bytes of non-ASCII characters, which are negative, never match a type
+    private static int typeOf(int uniqueChar) {
+        for (int i = 0; i < INVESTOR_TYPES.length; i++) {
+            if (INVESTOR_TYPES[i].getUniqueChar() == uniqueChar) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Reads NAME:number tokens up to the end of the line. Like String.split, ignores colons at the end of a token.
+     */
+    private static Map<String, Integer> parseStocks(InputTokenizer tokenizer) throws InputException {
+        // Keeps the input order, which is the order symbols get their indices in
+        Map<String, Integer> stockPrices = new LinkedHashMap<>();
+        while (tokenizer.nextToken()) {
+            int length = tokenizer.tokenLength();
+            while (length > 0 && tokenizer.tokenByte(length - 1) == ':') {
+                length--;
             }
-            String stockName = nameAndPrice[0].toUpperCase();
+            int colon = tokenizer.indexInToken((byte) ':');
+            int secondColon = colon < 0 ? -1 : tokenizer.indexInToken((byte) ':', colon + 1);
+            if (colon < 0 || colon >= length || (secondColon >= 0 && secondColon < length)) {
+                throw new InputException("Invalid stock format: " + tokenizer.token());
+            }
+            String stockName = tokenizer.tokenPart(0, colon).toUpperCase();
             // Stock name must A-Z, and at most 5 characters
             boolean isNameValid = stockName.chars().allMatch(Character::isLetter) && stockName.length() <= 5;
             if (!isNameValid) {
@@ -129,10 +215,10 @@ public class InputReader {
 
             int stockPrice;
             try {
-                stockPrice = Integer.parseInt(nameAndPrice[1]);
+                stockPrice = tokenizer.parseTokenInt(colon + 1, length);
             }
             catch (NumberFormatException e) {
-                throw new InputException("Invalid stock price: " + nameAndPrice[1]);
+                throw new InputException("Invalid stock price: " + tokenizer.tokenPart(colon + 1, length));
             }
 
             if (stockPrice <= 0) {
@@ -144,19 +230,18 @@ public class InputReader {
         return stockPrices;
     }
 
-    private static int parseWalletCash(String line) throws InputException {
+    private static int parseWalletCash(InputTokenizer tokenizer) throws InputException {
         int walletCashAmount;
 
-        Scanner walletCashReader = new Scanner(line);
-        if (!walletCashReader.hasNext()) {
+        if (!tokenizer.nextToken()) {
             throw new InputException("Missing wallet cash amount");
         }
 
         try {
-            walletCashAmount = Integer.parseInt(walletCashReader.next());
+            walletCashAmount = tokenizer.parseTokenInt(0, tokenizer.tokenLength());
         }
         catch (NumberFormatException e) {
-            throw new InputException("Invalid wallet cash amount: " + line);
+            throw new InputException("Invalid wallet cash amount: " + tokenizer.line());
         }
         if (walletCashAmount < 0) {
             throw new InputException("Wallet cash amount must be non-negative: " + walletCashAmount);
@@ -164,20 +249,67 @@ public class InputReader {
         return walletCashAmount;
     }
 
-    private static Map<String, Integer> parseWalletStocks(String line, Map<String, Integer> allStocks) throws InputException {
-        Scanner scanner = new Scanner(line);
-        String stringToSkip = scanner.next();
-
-        if (!scanner.hasNext()) {
-            throw new InputException("Missing wallet stocks");
-        }
-
-        Map<String, Integer> stockAmounts = parseStocks(line.substring(stringToSkip.length()));
+    private static Map<String, Integer> parseWalletStocks(InputTokenizer tokenizer, Map<String, Integer> allStocks)
+            throws InputException {
+        Map<String, Integer> stockAmounts = parseStocks(tokenizer);
         // Check if all stocks in wallet are valid
-        if (!stockAmounts.keySet().stream().allMatch(allStocks::containsKey)) {
+        if (!allStocks.keySet().containsAll(stockAmounts.keySet())) {
             throw new InputException("Invalid stock in wallet: " + stockAmounts.keySet());
         }
 
         return stockAmounts;
     }
+
+    /**
+     * Whether the current line gives chosen investors their own wallet: it starts with R#7 or R#0-99,
+     * or with an investor type on its own followed by a number. Leaves the tokenizer at the start of the line.
+     */
+    private static boolean isWalletSection(InputTokenizer tokenizer) {
+        tokenizer.nextToken();
+        boolean isSection = false;
+        if (typeOf(tokenizer.tokenByte(0)) >= 0) {
+            if (tokenizer.tokenLength() > 1) {
+                isSection = tokenizer.tokenByte(1) == '#';
+            } else if (tokenizer.nextToken()) {
+                byte first = tokenizer.tokenByte(0);
+                isSection = (first >= '0' && first <= '9') || first == '-' || first == '+';
+            }
+        }
+        tokenizer.restartLine();
+        return isSection;
+    }
+
+    /**
+     * Reads a line giving chosen investors their own wallet: R, R#7 or R#0-99, then cash and stocks.
+     */
+    private static void parseInvestorWallets(InputTokenizer tokenizer, InputInfo inputInfo) throws InputException {
+        tokenizer.nextToken();
+        String selector = tokenizer.token();
+        int length = tokenizer.tokenLength();
+        int type = typeOf(tokenizer.tokenByte(0));
+        if (length == 2) {
+            throw new InputException("Invalid wallet section: " + tokenizer.line());
+        }
+        InvestorType investorType = INVESTOR_TYPES[type];
+        int investorCount = inputInfo.getInvestorCounts().getOrDefault(investorType, 0);
+
+        int from = 0;
+        int to = investorCount - 1;
+        if (length > 1) {
+            int dash = tokenizer.indexInToken((byte) '-', 2);
+            try {
+                from = tokenizer.parseTokenInt(2, dash < 0 ? length : dash);
+                to = dash < 0 ? from : tokenizer.parseTokenInt(dash + 1, length);
+            } catch (NumberFormatException e) {
+                throw new InputException("Invalid wallet section: " + tokenizer.line());
+            }
+            if (from < 0 || from > to || to >= investorCount) {
+                throw new InputException("No such investors: " + selector);
+            }
+        }
+
+        int cash = parseWalletCash(tokenizer);
+        Map<String, Integer> stocks = parseWalletStocks(tokenizer, inputInfo.getStockPrices());
+        inputInfo.setInvestorWallets(investorType, from, to, new Wallet(cash, stocks));
+    }
 }
@@ -1,9 +1,15 @@
 package io;
 
+import investor.InvestorType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
-import static org.junit.jupiter.api.Assertions.assertThrows;
-import static org.junit.jupiter.api.Assertions.fail;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
 
 class InputReaderTest {
 
@@ -46,4 +52,73 @@ class InputReaderTest {
 
         System.out.println("Bad input test passed");
     }
-}
\ No newline at end of file
+
+    private static InputInfo read(Path dir, String input) throws IOException, InputReader.InputException {
+        Path file = dir.resolve("input.txt");
+        Files.writeString(file, input);
+        return InputReader.readInput(new String[]{file.toString(), "10"});
+    }
+
+    private static String errorOf(Path dir, String input) throws IOException {
+        Path file = dir.resolve("input.txt");
+        Files.writeString(file, input);
+        return assertThrows(InputReader.InputException.class,
+                () -> InputReader.readInput(new String[]{file.toString(), "10"})).getMessage();
+    }
+
+    @Test
+    void readCounts(@TempDir Path dir) throws IOException, InputReader.InputException {
+        InputInfo info = read(dir, "# counts\r\nR*900000 S*100000 R S\r\n\r\n  \r\nABC:100 de:5\r\n1000 ABC:1\r\n");
+        assertEquals(Map.of(InvestorType.RANDOM, 900001, InvestorType.SMA, 100001), info.getInvestorCounts());
+        assertEquals(Map.of("ABC", 100, "DE", 5), info.getStockPrices());
+        assertEquals(Map.of("ABC", 1), info.getWalletStocks());
+        assertEquals(1000, info.getWalletCashCount());
+        assertNull(info.getInvestorWallet(InvestorType.RANDOM, 0));
+
+        assertEquals("Invalid investor count: R*x", errorOf(dir, "R*x\nABC:1\n1 ABC:1\n"));
+        assertEquals("Investor count must be positive: R*0", errorOf(dir, "R*0\nABC:1\n1 ABC:1\n"));
+        assertEquals("Invalid investor specifier: R*", errorOf(dir, "R*\nABC:1\n1 ABC:1\n"));
+        assertEquals("Invalid investor unique char: X", errorOf(dir, "X*5\nABC:1\n1 ABC:1\n"));
+        // Characters, not bytes, like the old reader
+        assertEquals("Invalid investor unique char: Ż", errorOf(dir, "Ż\nABC:1\n1 ABC:1\n"));
+        assertEquals("Invalid investor unique char: Ż", errorOf(dir, "R Ż*5\nABC:1\n1 ABC:1\n"));
+        assertEquals("Invalid investor specifier: ŻR", errorOf(dir, "ŻR\nABC:1\n1 ABC:1\n"));
+        assertEquals("Invalid investor specifier: \uD83D\uDE00", errorOf(dir, "\uD83D\uDE00\nABC:1\n1 ABC:1\n"));
+
+        // Lines of only whitespace are skipped like empty ones, the old reader took them for a line of the input
+        info = read(dir, "R S\n \t \nABC:1\n   \n1 ABC:1\n");
+        assertEquals(Map.of(InvestorType.RANDOM, 1, InvestorType.SMA, 1), info.getInvestorCounts());
+        assertEquals(Map.of("ABC", 1), info.getStockPrices());
+        assertEquals("Invalid stock price: 99999999999", errorOf(dir, "R\nABC:99999999999\n1 ABC:1\n"));
+
+        // Colons at the end are ignored and the name may be empty, as they always were
+        assertEquals(Map.of("ABC", 5, "", 7), read(dir, "R\nABC:5: :7\n1 ABC:1::\n").getStockPrices());
+        assertEquals("Invalid stock format: ABC:5:5", errorOf(dir, "R\nABC:5:5\n1 ABC:1\n"));
+        assertEquals("Invalid stock format: ABC:", errorOf(dir, "R\nABC:\n1 ABC:1\n"));
+        assertEquals("Invalid stock format: ::", errorOf(dir, "R\n::\n1 ABC:1\n"));
+    }
+
+    @Test
+    void readInvestorWallets(@TempDir Path dir) throws IOException, InputReader.InputException {
+        InputInfo info = read(dir, "R*10 S*2\nABC:100 DE:5\n1000 ABC:1\nS 5 DE:2\nR#2-5 200\nR#4 0 ABC:7 DE:1\n");
+        assertNull(info.getInvestorWallet(InvestorType.RANDOM, 1));
+        assertEquals(200, info.getInvestorWallet(InvestorType.RANDOM, 2).getCash());
+        assertEquals(Map.of(), info.getInvestorWallet(InvestorType.RANDOM, 3).getStocks());
+        assertEquals(Map.of("ABC", 7, "DE", 1), info.getInvestorWallet(InvestorType.RANDOM, 4).getStocks());
+        assertEquals(200, info.getInvestorWallet(InvestorType.RANDOM, 5).getCash());
+        assertNull(info.getInvestorWallet(InvestorType.RANDOM, 6));
+        assertEquals(Map.of("DE", 2), info.getInvestorWallet(InvestorType.SMA, 1).getStocks());
+
+        assertEquals("No such investors: R#10", errorOf(dir, "R*10\nABC:1\n1 ABC:1\nR#10 5\n"));
+        assertEquals("No such investors: R#3-1", errorOf(dir, "R*10\nABC:1\n1 ABC:1\nR#3-1 5\n"));
+        assertEquals("Invalid wallet section: R# 5", errorOf(dir, "R*10\nABC:1\n1 ABC:1\nR# 5\n"));
+        assertEquals("Invalid wallet section: R#a 5", errorOf(dir, "R*10\nABC:1\n1 ABC:1\nR#a 5\n"));
+        assertEquals("Missing wallet cash amount", errorOf(dir, "R*10\nABC:1\n1 ABC:1\nR#1\n"));
+        assertEquals("Invalid stock in wallet: [XYZ]", errorOf(dir, "R*10\nABC:1\n1 ABC:1\nR 1 XYZ:1\n"));
+
+        // Lines that don't start like a wallet section are ignored, as they always were
+        info = read(dir, "R*10\nABC:1\n1 ABC:1\nR5 5\nR R S\nsome notes: 5\nR#1 3\n");
+        assertNull(info.getInvestorWallet(InvestorType.RANDOM, 0));
+        assertEquals(3, info.getInvestorWallet(InvestorType.RANDOM, 1).getCash());
+    }
+}
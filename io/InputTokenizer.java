@@ -0,0 +1,158 @@
+package io;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Walks through the bytes of an input file line by line and token by token, tokens being separated by whitespace.
+ * Tokens are only positions in the buffer, numbers are parsed straight from the bytes and strings are made
+ * only when asked for, so reading a line of a million investors allocates nothing.
+ * Empty and blank lines, and lines starting with '#', are skipped. The file is read as UTF-8.
+ */
+class InputTokenizer {
+    private final ByteBuffer buffer;
+    private int nextLineStart = 0;
+    private int lineStart;
+    private int lineEnd;
+    private int cursor; // where to look for the next token
+    private int tokenStart;
+    private int tokenEnd;
+
+    InputTokenizer(ByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Moves to the next line with any tokens on it. Returns false at the end of the input.
+     */
+    boolean nextLine() {
+        int limit = buffer.limit();
+        while (nextLineStart < limit) {
+            lineStart = nextLineStart;
+            int end = lineStart;
+            while (end < limit && buffer.get(end) != '\n') {
+                end++;
+            }
+            nextLineStart = end + 1;
+            lineEnd = end;
+            cursor = lineStart;
+            if (buffer.get(lineStart) != '#' && hasNextToken()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Goes back to the first token of the current line.
+     */
+    void restartLine() {
+        cursor = lineStart;
+    }
+
+    boolean hasNextToken() {
+        while (cursor < lineEnd && isWhitespace(buffer.get(cursor))) {
+            cursor++;
+        }
+        return cursor < lineEnd;
+    }
+
+    /**
+     * Moves to the next token of the current line. Returns false if there are no more.
+     */
+    boolean nextToken() {
+        if (!hasNextToken()) {
+            return false;
+        }
+        tokenStart = cursor;
+        while (cursor < lineEnd && !isWhitespace(buffer.get(cursor))) {
+            cursor++;
+        }
+        tokenEnd = cursor;
+        return true;
+    }
+
+    int tokenLength() {
+        return tokenEnd - tokenStart;
+    }
+
+    /**
+     * The i-th byte of the current token.
+     */
+    byte tokenByte(int i) {
+        return buffer.get(tokenStart + i);
+    }
+
+    int indexInToken(byte b) {
+        return indexInToken(b, 0);
+    }
+
+    /**
+     * Position of the first occurrence of the given byte in the current token, starting at {@code from}, or -1.
+     */
+    int indexInToken(byte b, int from) {
+        for (int i = tokenStart + from; i < tokenEnd; i++) {
+            if (buffer.get(i) == b) {
+                return i - tokenStart;
+            }
+        }
+        return -1;
+    }
+
+    String token() {
+        return tokenPart(0, tokenLength());
+    }
+
+    String tokenPart(int from, int to) {
+        return decode(tokenStart + from, tokenStart + to);
+    }
+
+    /**
+     * The current line, without the line break, as it is in the file.
+     */
+    String line() {
+        int end = lineEnd > lineStart && buffer.get(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+        return decode(lineStart, end);
+    }
+
+    /**
+     * Parses a part of the current token like {@link Integer#parseInt(String)} does.
+     */
+    int parseTokenInt(int from, int to) {
+        int start = tokenStart + from;
+        int end = tokenStart + to;
+        if (start >= end) {
+            throw new NumberFormatException("Empty number");
+        }
+        boolean negative = buffer.get(start) == '-';
+        if (negative || buffer.get(start) == '+') {
+            start++;
+            if (start == end) {
+                throw new NumberFormatException(decode(start - 1, end));
+            }
+        }
+        // Accumulated as a negative number, which has room for Integer.MIN_VALUE
+        int result = 0;
+        for (int i = start; i < end; i++) {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || result < (Integer.MIN_VALUE + digit) / 10) {
+                throw new NumberFormatException(decode(tokenStart + from, end));
+            }
+            result = result * 10 - digit;
+        }
+        if (!negative && result == Integer.MIN_VALUE) {
+            throw new NumberFormatException(decode(tokenStart + from, end));
+        }
+        return negative ? result : -result;
+    }
+
+    private String decode(int from, int to) {
+        byte[] bytes = new byte[to - from];
+        buffer.get(from, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\f' || b == 0x0B;
+    }
+}
@@ -0,0 +1,28 @@
+package io;
+
+import java.util.Map;
+
+/**
+ * What an investor starts the simulation with.
+ */
+public class Wallet {
+    private final int cash;
+    private final Map<String, Integer> stocks;
+
+    public Wallet(int cash, Map<String, Integer> stocks) {
+        this.cash = cash;
+        this.stocks = stocks;
+    }
+
+    public int getCash() {
+        return cash;
+    }
+
+    public Map<String, Integer> getStocks() {
+        return stocks;
+    }
+
+    public String toString() {
+        return cash + " " + stocks;
+    }
+}
@@ -0,0 +1,128 @@
+package metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Log-linear histogram of non-negative long values, in the spirit of HdrHistogram: every power of two is split
+ * into 32 equal buckets, so any recorded value is known to within about 3% in a fixed 15 KB.
+ * One thread records, any thread may read; readers see every value recorded before, maybe a little late.
+ */
+public class Histogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    // Exact buckets below SUB_BUCKET_COUNT, then SUB_BUCKET_COUNT buckets for each power of two up to 2^62
+    private static final int BUCKET_COUNT = SUB_BUCKET_COUNT + (63 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    private static final int COUNT = 0;
+    private static final int SUM = 1;
+    private static final int MIN = 2;
+    private static final int MAX = 3;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLongArray totals = new AtomicLongArray(4);
+
+    public Histogram() {
+        totals.set(MIN, Long.MAX_VALUE);
+    }
+
+    /**
+     * Records the value, negative ones as 0. Must only be called by one thread at a time.
+     */
+    public void record(long value) {
+        value = Math.max(value, 0);
+        int index = bucketIndex(value);
+        // Only this thread writes, so ordered writes are enough to publish the new values
+        buckets.lazySet(index, buckets.get(index) + 1);
+        totals.lazySet(SUM, totals.get(SUM) + value);
+        if (value < totals.get(MIN)) {
+            totals.lazySet(MIN, value);
+        }
+        if (value > totals.get(MAX)) {
+            totals.lazySet(MAX, value);
+        }
+        totals.lazySet(COUNT, totals.get(COUNT) + 1);
+    }
+
+    public long getCount() {
+        return totals.get(COUNT);
+    }
+
+    /**
+     * The smallest value recorded, 0 if there were none.
+     */
+    public long getMin() {
+        return getCount() == 0 ? 0 : totals.get(MIN);
+    }
+
+    public long getMax() {
+        return totals.get(MAX);
+    }
+
+    public double getMean() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totals.get(SUM) / count;
+    }
+
+    /**
+     * The value below or at which the given percentage of the recorded values lies, as the largest value
+     * of its bucket and never above the maximum. 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile out of range: " + percentile);
+        }
+        long count = getCount();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    /**
+     * Forgets everything recorded. Like recording, only for the recording thread.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.lazySet(i, 0);
+        }
+        totals.lazySet(SUM, 0);
+        totals.lazySet(MIN, Long.MAX_VALUE);
+        totals.lazySet(MAX, 0);
+        totals.lazySet(COUNT, 0);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value); // at least SUB_BUCKET_BITS
+        int shift = magnitude - SUB_BUCKET_BITS;
+        // The top SUB_BUCKET_BITS + 1 bits of the value, of which the highest is always set
+        int mantissa = (int) (value >>> shift);
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + (mantissa - SUB_BUCKET_COUNT);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        long mantissa = SUB_BUCKET_COUNT + (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((mantissa + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count %d, mean %.0f, p50 %d, p90 %d, p99 %d, max %d", getCount(), getMean(),
+                getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), getMax());
+    }
+}
@@ -0,0 +1,44 @@
+package metrics;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HistogramTest {
+
+    @Test
+    void buckets() {
+        long previous = -1;
+        for (int index = 0; index < 1888; index++) {
+            long highest = Histogram.highestValueOf(index);
+            assertTrue(highest > previous);
+            assertEquals(index, Histogram.bucketIndex(highest));
+            assertEquals(index, Histogram.bucketIndex(previous + 1));
+            previous = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    void percentiles() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(1, histogram.getMin());
+        assertEquals(100_000, histogram.getMax());
+        assertEquals(50_000.5, histogram.getMean());
+        for (double percentile : new double[]{1, 50, 90, 99, 99.9}) {
+            double exact = percentile * 1000;
+            assertEquals(exact, histogram.getValueAtPercentile(percentile), exact / 32);
+        }
+        assertEquals(100_000, histogram.getValueAtPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        histogram.record(-5);
+        assertEquals(0, histogram.getMax());
+    }
+}
@@ -0,0 +1,12 @@
+package metrics;
+
+/**
+ * The parts of a round that are timed separately.
+ */
+public enum Phase {
+    EXPIRY, // removing overdue orders
+    ORDERS, // investors deciding and the system accepting or rejecting their orders
+    MATCHING, // matching the books, settling and reporting the deals
+    SMA, // updating the moving averages
+    ROUND // the whole round, including listeners and checkpoints
+}
@@ -0,0 +1,271 @@
+package metrics;
+
+import order.OrderBook;
+import order.RejectionReason;
+import utils.SymbolRegistry;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counters and latency histograms of a running simulation. Only the simulation thread records;
+ * the values can be read at any time from any thread, e.g. over JMX once {@link #registerMBean()} was called.
+ */
+public class SimulationMetrics implements SimulationMetricsMXBean {
+    public static final String OBJECT_NAME = "stockexchange:type=SimulationMetrics";
+
+    private static final int ROUNDS = 0;
+    private static final int ACCEPTED = 1;
+    private static final int FILLS = 2;
+    private static final int FULL_EXECUTION_REJECTIONS = 3;
+    private static final int CANCELLED = 4;
+    private static final int CANCELS_MISSED = 5;
+
+    private final SymbolRegistry symbols;
+    private final Histogram[] phaseNanos = new Histogram[Phase.values().length];
+    private final Histogram fillsPerRound = new Histogram();
+    private final AtomicLongArray counters = new AtomicLongArray(6);
+    private final AtomicLongArray rejections = new AtomicLongArray(RejectionReason.values().length);
+    // Resting orders after the last round, buy side at 2 * stock index and sell side right after it
+    private final AtomicLongArray bookDepth;
+    private volatile boolean resetRequested;
+
+    public SimulationMetrics(SymbolRegistry symbols) {
+        this.symbols = symbols;
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new Histogram();
+        }
+        bookDepth = new AtomicLongArray(2 * symbols.size());
+    }
+
+    /**
+     * Records how long the phase took since {@code startNanos} and returns the current time,
+     * which is where the next phase starts.
+     */
+    public long recordPhase(Phase phase, long startNanos) {
+        long now = System.nanoTime();
+        phaseNanos[phase.ordinal()].record(now - startNanos);
+        return now;
+    }
+
+    public void orderAccepted() {
+        increment(counters, ACCEPTED, 1);
+    }
+
+    public void orderRejected(RejectionReason reason) {
+        increment(rejections, reason.ordinal(), 1);
+    }
+
+    public void orderCancelled() {
+        increment(counters, CANCELLED, 1);
+    }
+
+    /**
+     * A cancel request for an order that wasn't resting anymore, or wasn't the investor's.
+     */
+    public void cancelMissed() {
+        increment(counters, CANCELS_MISSED, 1);
+    }
+
+    /**
+     * Records the outcome of the matching of one round: the deals closed and the full execution
+     * buy orders that could not be filled completely and were left waiting.
+     */
+    public void ordersMatched(int fillCount, int fullExecutionRejectionCount) {
+        increment(counters, FILLS, fillCount);
+        increment(counters, FULL_EXECUTION_REJECTIONS, fullExecutionRejectionCount);
+        fillsPerRound.record(fillCount);
+    }
+
+    /**
+     * Takes the depth of every book and the time of the whole round that started at {@code startNanos}.
+     */
+    public void roundEnded(OrderBook[] orderBooks, long startNanos) {
+        for (OrderBook orderBook : orderBooks) {
+            bookDepth.lazySet(2 * orderBook.getStockIndex(), orderBook.getBuyOrderCount());
+            bookDepth.lazySet(2 * orderBook.getStockIndex() + 1, orderBook.getSellOrderCount());
+        }
+        recordPhase(Phase.ROUND, startNanos);
+        increment(counters, ROUNDS, 1);
+        if (resetRequested) {
+            resetRequested = false;
+            for (Histogram histogram : phaseNanos) {
+                histogram.reset();
+            }
+            fillsPerRound.reset();
+            for (int i = 0; i < counters.length(); i++) {
+                counters.lazySet(i, 0);
+            }
+            for (int i = 0; i < rejections.length(); i++) {
+                rejections.lazySet(i, 0);
+            }
+        }
+    }
+
+    private static void increment(AtomicLongArray array, int index, long delta) {
+        // Only the simulation thread writes, an ordered write is all the readers need
+        array.lazySet(index, array.get(index) + delta);
+    }
+
+    public Histogram getPhase(Phase phase) {
+        return phaseNanos[phase.ordinal()];
+    }
+
+    public Histogram getFillsPerRound() {
+        return fillsPerRound;
+    }
+
+    public long getRejectedOrders(RejectionReason reason) {
+        return rejections.get(reason.ordinal());
+    }
+
+    /**
+     * Makes the metrics readable over JMX under {@link #OBJECT_NAME}.
+     */
+    public void registerMBean() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    @Override
+    public long getRoundsRun() {
+        return counters.get(ROUNDS);
+    }
+
+    @Override
+    public long getAcceptedOrders() {
+        return counters.get(ACCEPTED);
+    }
+
+    @Override
+    public long getRejectedOrders() {
+        long sum = 0;
+        for (int i = 0; i < rejections.length(); i++) {
+            sum += rejections.get(i);
+        }
+        return sum;
+    }
+
+    @Override
+    public Map<String, Long> getRejectedOrdersByReason() {
+        Map<String, Long> byReason = new LinkedHashMap<>();
+        for (RejectionReason reason : RejectionReason.values()) {
+            byReason.put(reason.name(), getRejectedOrders(reason));
+        }
+        return byReason;
+    }
+
+    @Override
+    public long getCancelledOrders() {
+        return counters.get(CANCELLED);
+    }
+
+    @Override
+    public long getMissedCancels() {
+        return counters.get(CANCELS_MISSED);
+    }
+
+    @Override
+    public long getFills() {
+        return counters.get(FILLS);
+    }
+
+    @Override
+    public long getFullExecutionRejections() {
+        return counters.get(FULL_EXECUTION_REJECTIONS);
+    }
+
+    @Override
+    public Map<String, Long> getBuyDepth() {
+        return depthOfSide(0);
+    }
+
+    @Override
+    public Map<String, Long> getSellDepth() {
+        return depthOfSide(1);
+    }
+
+    private Map<String, Long> depthOfSide(int side) {
+        Map<String, Long> depth = new LinkedHashMap<>();
+        for (int i = 0; i < symbols.size(); i++) {
+            depth.put(symbols.getSymbol(i), bookDepth.get(2 * i + side));
+        }
+        return depth;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseMeanNanos() {
+        Map<String, Long> means = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            means.put(phase.name(), Math.round(getPhase(phase).getMean()));
+        }
+        return means;
+    }
+
+    @Override
+    public Map<String, Long> getPhaseNanosAtPercentile(double percentile) {
+        Map<String, Long> values = new LinkedHashMap<>();
+        for (Phase phase : Phase.values()) {
+            values.put(phase.name(), getPhase(phase).getValueAtPercentile(percentile));
+        }
+        return values;
+    }
+
+    @Override
+    public long getFillsPerRoundAtPercentile(double percentile) {
+        return fillsPerRound.getValueAtPercentile(percentile);
+    }
+
+    @Override
+    public String getSummary() {
+        StringBuilder summary = new StringBuilder();
+        summary.append("Metrics after ").append(getRoundsRun()).append(" rounds: ")
+                .append(getAcceptedOrders()).append(" orders accepted, ")
+                .append(getRejectedOrders()).append(" rejected");
+        Map<RejectionReason, Long> nonZero = new EnumMap<>(RejectionReason.class);
+        for (RejectionReason reason : RejectionReason.values()) {
+            if (getRejectedOrders(reason) > 0) {
+                nonZero.put(reason, getRejectedOrders(reason));
+            }
+        }
+        if (!nonZero.isEmpty()) {
+            summary.append(' ').append(nonZero);
+        }
+        summary.append(", ").append(getCancelledOrders()).append(" cancelled (")
+                .append(getMissedCancels()).append(" cancels too late), ")
+                .append(getFills()).append(" fills, ")
+                .append(getFullExecutionRejections()).append(" full execution orders left unfilled\n");
+        for (Phase phase : Phase.values()) {
+            summary.append("  ").append(phase).append(" ns: ").append(getPhase(phase)).append('\n');
+        }
+        summary.append("  fills per round: ").append(fillsPerRound).append('\n');
+
+        long restingOrders = 0;
+        int deepest = -1;
+        long deepestDepth = -1;
+        for (int i = 0; i < symbols.size(); i++) {
+            long depth = bookDepth.get(2 * i) + bookDepth.get(2 * i + 1);
+            restingOrders += depth;
+            if (depth > deepestDepth) {
+                deepest = i;
+                deepestDepth = depth;
+            }
+        }
+        summary.append("  resting orders: ").append(restingOrders);
+        if (deepest >= 0) {
+            summary.append(", deepest book ").append(symbols.getSymbol(deepest))
+                    .append(" (").append(bookDepth.get(2 * deepest)).append(" buy, ")
+                    .append(bookDepth.get(2 * deepest + 1)).append(" sell)");
+        }
+        return summary.toString();
+    }
+
+    @Override
+    public void reset() {
+        resetRequested = true;
+    }
+}
@@ -0,0 +1,42 @@
+package metrics;
+
+import java.util.Map;
+
+/**
+ * What {@link SimulationMetrics} shows over JMX. Latencies are in nanoseconds, maps are keyed by
+ * phase, rejection reason or stock.
+ */
+public interface SimulationMetricsMXBean {
+    long getRoundsRun();
+
+    long getAcceptedOrders();
+
+    long getRejectedOrders();
+
+    Map<String, Long> getRejectedOrdersByReason();
+
+    long getCancelledOrders();
+
+    long getMissedCancels();
+
+    long getFills();
+
+    long getFullExecutionRejections();
+
+    Map<String, Long> getBuyDepth();
+
+    Map<String, Long> getSellDepth();
+
+    Map<String, Long> getPhaseMeanNanos();
+
+    Map<String, Long> getPhaseNanosAtPercentile(double percentile);
+
+    long getFillsPerRoundAtPercentile(double percentile);
+
+    String getSummary();
+
+    /**
+     * Zeroes the counters and histograms once the round that is running ends.
+     */
+    void reset();
+}
@@ -0,0 +1,103 @@
+package order;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Consumer;
+
+/**
+ * Remembers in which round every accepted order stops being valid, so old orders can be removed
+ * without looking at the rest of the book.
+ * Orders expiring within the next {@code wheelSize} rounds go to a timing wheel bucket, the rare ones
+ * with a later due date wait in an overflow map. Persistent orders are never indexed.
+ * Orders are reused once they leave the book, so every entry keeps the id the order had when it was added.
+ */
+public class ExpiryIndex {
+    public static final int DEFAULT_WHEEL_SIZE = 64;
+
+    private final Bucket[] wheel;
+    private final int mask;
+    private final TreeMap<Integer, Bucket> overflow = new TreeMap<>();
+    private int size = 0;
+
+    public ExpiryIndex() {
+        this(DEFAULT_WHEEL_SIZE);
+    }
+
+    public ExpiryIndex(int wheelSize) {
+        if (wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("Wheel size must be a power of two: " + wheelSize);
+        }
+        wheel = new Bucket[wheelSize];
+        for (int i = 0; i < wheelSize; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = wheelSize - 1;
+    }
+
+    /**
+     * Indexes an order accepted in the current round. Its round must already be set.
+     */
+    public void add(StockOrder order) {
+        int expiryRound = order.getExpiryRound();
+        if (expiryRound == StockOrder.NEVER_EXPIRES) {
+            return;
+        }
+        if (expiryRound - order.getRound() <= mask) {
+            wheel[expiryRound & mask].add(order);
+        } else {
+            overflow.computeIfAbsent(expiryRound, r -> new Bucket()).add(order);
+        }
+        size++;
+    }
+
+    /**
+     * Hands every order that expires at the start of the given round to {@code onExpired}.
+     * Must be called once for every round, in order. Orders that already left the book,
+     * maybe to come back as another order, are skipped.
+     */
+    public void expire(int round, Consumer<StockOrder> onExpired) {
+        expireAll(wheel[round & mask], onExpired);
+
+        while (!overflow.isEmpty() && overflow.firstKey() <= round) {
+            Map.Entry<Integer, Bucket> entry = overflow.pollFirstEntry();
+            expireAll(entry.getValue(), onExpired);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void expireAll(Bucket bucket, Consumer<StockOrder> onExpired) {
+        for (int i = 0; i < bucket.size; i++) {
+            StockOrder order = bucket.orders[i];
+            if (order.getId() == bucket.ids[i] && order.isResting()) {
+                onExpired.accept(order);
+            }
+        }
+        size -= bucket.size;
+        bucket.clear();
+    }
+
+    private static class Bucket {
+        private StockOrder[] orders = new StockOrder[4];
+        private long[] ids = new long[4];
+        private int size = 0;
+
+        void add(StockOrder order) {
+            if (size == orders.length) {
+                orders = Arrays.copyOf(orders, 2 * size);
+                ids = Arrays.copyOf(ids, 2 * size);
+            }
+            orders[size] = order;
+            ids[size] = order.getId();
+            size++;
+        }
+
+        void clear() {
+            Arrays.fill(orders, 0, size, null);
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package order;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ExpiryIndexTest {
+    private OrderFixture fixture;
+
+    private StockOrder order(DueType dueType, Integer dueDate, int round) throws StockOrder.BadOrderException {
+        return fixture.order(OrderType.BUY, dueType, dueDate, 1, 100, round, 0);
+    }
+
+    @Test
+    void expire() throws Exception {
+        fixture = new OrderFixture();
+
+        OrderBook book = OrderFixture.book();
+        ExpiryIndex index = new ExpiryIndex(4);
+
+        StockOrder immediate = order(DueType.IMMEDIATE, null, 0);
+        StockOrder fullExecution = order(DueType.FULL_EXECUTION, null, 0);
+        StockOrder due = order(DueType.DUE, 2, 0);
+        StockOrder farDue = order(DueType.DUE, 10, 0);
+        StockOrder pastDue = order(DueType.DUE, 0, 1);
+        StockOrder persistent = order(DueType.PERSISTENT, null, 0);
+        // Overdue only after the last round there is, so it is never expired either
+        StockOrder lastDue = order(DueType.DUE, Integer.MAX_VALUE, 0);
+        assertEquals(StockOrder.NEVER_EXPIRES, lastDue.getExpiryRound());
+        for (StockOrder order : List.of(immediate, fullExecution, due, farDue, pastDue, persistent, lastDue)) {
+            book.add(order);
+            index.add(order);
+        }
+        assertEquals(5, index.size());
+
+        List<StockOrder> expired = new ArrayList<>();
+        for (int round = 0; round <= 1000; round++) {
+            int currentRound = round;
+            index.expire(round, order -> {
+                assertTrue(order.isOverdue(currentRound));
+                expired.add(order);
+                book.remove(order);
+            });
+            if (round == 1) {
+                assertEquals(List.of(immediate, fullExecution), expired);
+            }
+        }
+        assertEquals(List.of(immediate, fullExecution, pastDue, due, farDue), expired);
+        assertEquals(0, index.size());
+        assertSame(persistent, book.getBestBuyOrder());
+        assertTrue(lastDue.isResting());
+        assertEquals(2, book.getBuyOrderCount());
+    }
+}
@@ -0,0 +1,79 @@
+package order;
+
+import java.util.Arrays;
+
+/**
+ * Deals closed by one order book during its last matching, in the order they were closed.
+ * The arrays are reused from round to round, so a book that trades allocates nothing once they have grown.
+ */
+public class FillLog {
+    private static final byte BUY_COMPLETED = 1;
+    private static final byte SELL_COMPLETED = 2;
+
+    private StockOrder[] buyOrders = new StockOrder[16];
+    private StockOrder[] sellOrders = new StockOrder[16];
+    private int[] prices = new int[16];
+    private int[] quantities = new int[16];
+    private byte[] completions = new byte[16]; // which of the two orders the deal filled completely
+    private int size = 0;
+
+    void add(StockOrder buyOrder, StockOrder sellOrder, int price, int quantity) {
+        if (size == prices.length) {
+            int capacity = size * 2;
+            buyOrders = Arrays.copyOf(buyOrders, capacity);
+            sellOrders = Arrays.copyOf(sellOrders, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            completions = Arrays.copyOf(completions, capacity);
+        }
+        buyOrders[size] = buyOrder;
+        sellOrders[size] = sellOrder;
+        prices[size] = price;
+        quantities[size] = quantity;
+        // Called right after the deal, so an order with nothing left was completed by exactly this deal
+        completions[size] = (byte) ((buyOrder.isFullyExecuted() ? BUY_COMPLETED : 0)
+                | (sellOrder.isFullyExecuted() ? SELL_COMPLETED : 0));
+        size++;
+    }
+
+    void clear() {
+        // Don't keep finished orders alive until the next deal overwrites them
+        Arrays.fill(buyOrders, 0, size, null);
+        Arrays.fill(sellOrders, 0, size, null);
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public StockOrder getBuyOrder(int i) {
+        return buyOrders[i];
+    }
+
+    public StockOrder getSellOrder(int i) {
+        return sellOrders[i];
+    }
+
+    public int getPrice(int i) {
+        return prices[i];
+    }
+
+    public int getQuantity(int i) {
+        return quantities[i];
+    }
+
+    /**
+     * Whether the i-th deal was the last one of its buy order, leaving nothing more to buy.
+     */
+    public boolean isBuyOrderCompleted(int i) {
+        return (completions[i] & BUY_COMPLETED) != 0;
+    }
+
+    /**
+     * Whether the i-th deal was the last one of its sell order, leaving nothing more to sell.
+     */
+    public boolean isSellOrderCompleted(int i) {
+        return (completions[i] & SELL_COMPLETED) != 0;
+    }
+}
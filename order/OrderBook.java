@@ -0,0 +1,282 @@
+package order;
+
+import investor.Investor;
+
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.TreeMap;
+
+/**
+ * Buy and sell orders of a single stock, grouped into price levels.
+ * Each side keeps its levels sorted from the best price to the worst, so the best order is always
+ * at hand and walking a side visits orders in the same order the system used to sort them in:
+ * price first, then round, then priority in round. Empty levels are dropped right away.
+ */
+public class OrderBook {
+    private final String stockID;
+    private final int stockIndex;
+    private final Side buySide = new Side(Comparator.reverseOrder());
+    private final Side sellSide = new Side(Comparator.naturalOrder());
+    private final FillLog fillLog = new FillLog();
+    private int lastDealPrice = -1;
+    private int fullExecutionRejectionCount;
+
+    public OrderBook(String stockID, int stockIndex) {
+        this.stockID = stockID;
+        this.stockIndex = stockIndex;
+    }
+
+    public String getStockID() {
+        return stockID;
+    }
+
+    public int getStockIndex() {
+        return stockIndex;
+    }
+
+    public void add(StockOrder order) {
+        sideOf(order).add(order);
+    }
+
+    public void remove(StockOrder order) {
+        sideOf(order).remove(order);
+    }
+
+    /**
+     * Closes deals between crossing orders and returns how many were closed.
+     * Buy orders are served best first, each against the sell orders it crosses with, also best first.
+     * Matching stops as soon as the best buy price drops below the best sell price,
+     * so only the crossing part of the book is ever walked.
+     * The deals closed are in the fill log until the next matching.
+     */
+    public int match() {
+        fillLog.clear();
+        fullExecutionRejectionCount = 0;
+        int dealCount = 0;
+        StockOrder buyOrder = getBestBuyOrder();
+        while (buyOrder != null && sellSide.best != null && buyOrder.getPriceLimit() >= sellSide.best.price) {
+            StockOrder nextBuyOrder = nextInPriority(buyOrder);
+            if (buyOrder.getDueType() != DueType.FULL_EXECUTION || canBeFullyExecuted(buyOrder)) {
+                dealCount += matchWithSellOrders(buyOrder);
+            } else {
+                fullExecutionRejectionCount++;
+            }
+            buyOrder = nextBuyOrder;
+        }
+        return dealCount;
+    }
+
+    /**
+     * Pays for the deals closed by the last {@link #match()}: the sellers get their money and what buy orders
+     * saved by buying below their limit goes back to the buyers once they are filled.
+     * Unlike matching this touches the investors' cash, so books have to be settled one after another.
+     */
+    public void settle() {
+        for (int i = 0; i < fillLog.size(); i++) {
+            StockOrder buyOrder = fillLog.getBuyOrder(i);
+            Investor buyer = buyOrder.getInvestor();
+            Investor seller = fillLog.getSellOrder(i).getInvestor();
+            int fullPrice = fillLog.getPrice(i) * fillLog.getQuantity(i);
+
+            buyer.payReserved(fullPrice);
+            seller.receive(fullPrice);
+            buyer.settleStock(stockIndex);
+            seller.settleStock(stockIndex);
+
+            if (fillLog.isBuyOrderCompleted(i)) {
+                buyOrder.release();
+            }
+        }
+    }
+
+    /**
+     * Price of the last deal closed by {@link #match()}, or -1 if there was none yet.
+     */
+    public int getLastDealPrice() {
+        return lastDealPrice;
+    }
+
+    /**
+     * How many crossing full execution buy orders the last {@link #match()} left alone, because they could not be filled completely.
+     */
+    public int getFullExecutionRejectionCount() {
+        return fullExecutionRejectionCount;
+    }
+
+    public FillLog getFillLog() {
+        return fillLog;
+    }
+
+    public StockOrder getBestBuyOrder() {
+        return buySide.best == null ? null : buySide.best.head;
+    }
+
+    public StockOrder getBestSellOrder() {
+        return sellSide.best == null ? null : sellSide.best.head;
+    }
+
+    /**
+     * Returns the order that follows the given resting order on its side, or null if it is the last one.
+     */
+    public StockOrder nextInPriority(StockOrder order) {
+        if (order.nextInLevel != null) {
+            return order.nextInLevel;
+        }
+        PriceLevel worse = order.level.worse;
+        return worse == null ? null : worse.head;
+    }
+
+    public Iterable<StockOrder> getBuyOrders() {
+        return () -> new PriorityIterator(getBestBuyOrder());
+    }
+
+    public Iterable<StockOrder> getSellOrders() {
+        return () -> new PriorityIterator(getBestSellOrder());
+    }
+
+    public int getBuyOrderCount() {
+        return buySide.orderCount;
+    }
+
+    public int getSellOrderCount() {
+        return sellSide.orderCount;
+    }
+
+    public int getBuyLevelCount() {
+        return buySide.levels.size();
+    }
+
+    public int getSellLevelCount() {
+        return sellSide.levels.size();
+    }
+
+    private int matchWithSellOrders(StockOrder buyOrder) {
+        int dealCount = 0;
+        StockOrder sellOrder = getBestSellOrder();
+        while (sellOrder != null && !buyOrder.isFullyExecuted() && sellOrder.getPriceLimit() <= buyOrder.getPriceLimit()) {
+            StockOrder nextSellOrder = nextInPriority(sellOrder);
+
+            // Full execution orders can't be the second hand of a deal, so they are never filled from here
+            if (sellOrder.getDueType() != DueType.FULL_EXECUTION) {
+                int quantityBefore = buyOrder.getQuantity();
+                int closePrice = buyOrder.tryCloseDealWith(sellOrder);
+                if (closePrice != StockOrder.NO_DEAL) {
+                    fillLog.add(buyOrder, sellOrder, closePrice, quantityBefore - buyOrder.getQuantity());
+                    lastDealPrice = closePrice;
+                    dealCount++;
+                    if (sellOrder.isFullyExecuted()) {
+                        remove(sellOrder);
+                    }
+                }
+            }
+            sellOrder = nextSellOrder;
+        }
+        if (buyOrder.isFullyExecuted()) {
+            remove(buyOrder);
+        }
+        return dealCount;
+    }
+
+    private boolean canBeFullyExecuted(StockOrder buyOrder) {
+        // Every resting order reserved what it needs and a buy order's reservation covers all of it at its limit,
+        // so it only takes enough volume at acceptable prices, which the level totals tell without looking at any order
+        long quantityMissing = buyOrder.getQuantity();
+        PriceLevel level = sellSide.best;
+        while (quantityMissing > 0 && level != null && level.price <= buyOrder.getPriceLimit()) {
+            quantityMissing -= level.fillableQuantity;
+            level = level.worse;
+        }
+        return quantityMissing <= 0;
+    }
+
+    private Side sideOf(StockOrder order) {
+        return order.getType() == OrderType.BUY ? buySide : sellSide;
+    }
+
+    private class PriorityIterator implements Iterator<StockOrder> {
+        private StockOrder next;
+
+        PriorityIterator(StockOrder first) {
+            next = first;
+        }
+
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        public StockOrder next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            StockOrder current = next;
+            next = nextInPriority(current);
+            return current;
+        }
+    }
+
+    private static class Side {
+        // Levels ordered from the best price to the worst, used to find where a new level goes
+        private final TreeMap<Integer, PriceLevel> levels;
+        private PriceLevel best;
+        private int orderCount = 0;
+
+        Side(Comparator<Integer> bestFirst) {
+            levels = new TreeMap<>(bestFirst);
+        }
+
+        void add(StockOrder order) {
+            PriceLevel level = levels.get(order.getPriceLimit());
+            if (level == null) {
+                level = new PriceLevel(order.getPriceLimit());
+                linkLevel(level);
+            }
+            level.append(order);
+            orderCount++;
+        }
+
+        void remove(StockOrder order) {
+            PriceLevel level = order.level;
+            level.unlink(order);
+            orderCount--;
+            if (level.isEmpty()) {
+                unlinkLevel(level);
+            }
+        }
+
+        private void linkLevel(PriceLevel level) {
+            Map.Entry<Integer, PriceLevel> betterEntry = levels.lowerEntry(level.price);
+            levels.put(level.price, level);
+            if (betterEntry == null) {
+                level.worse = best;
+                if (best != null) {
+                    best.better = level;
+                }
+                best = level;
+                return;
+            }
+            PriceLevel better = betterEntry.getValue();
+            level.better = better;
+            level.worse = better.worse;
+            if (better.worse != null) {
+                better.worse.better = level;
+            }
+            better.worse = level;
+        }
+
+        private void unlinkLevel(PriceLevel level) {
+            levels.remove(level.price);
+            if (level.better == null) {
+                best = level.worse;
+            } else {
+                level.better.worse = level.worse;
+            }
+            if (level.worse != null) {
+                level.worse.better = level.better;
+            }
+            level.better = null;
+            level.worse = null;
+        }
+    }
+}
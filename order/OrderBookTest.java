@@ -0,0 +1,110 @@
+package order;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderBookTest {
+    private OrderFixture fixture;
+
+    @BeforeEach
+    void createFixture() throws Exception {
+        fixture = new OrderFixture();
+    }
+
+    private StockOrder order(OrderType type, int priceLimit, int round, int priority) throws StockOrder.BadOrderException {
+        return order(type, DueType.PERSISTENT, 1, priceLimit, round, priority);
+    }
+
+    private StockOrder order(OrderType type, DueType dueType, int quantity, int priceLimit, int round, int priority)
+            throws StockOrder.BadOrderException {
+        StockOrder order = fixture.order(type, dueType, null, quantity, priceLimit, round, priority);
+        order.reserve();
+        return order;
+    }
+
+    private static List<StockOrder> toList(Iterable<StockOrder> orders) {
+        List<StockOrder> list = new ArrayList<>();
+        orders.forEach(list::add);
+        return list;
+    }
+
+    @Test
+    void priorityOrder() throws Exception {
+        OrderBook book = OrderFixture.book();
+        assertNull(book.getBestBuyOrder());
+        assertNull(book.getBestSellOrder());
+
+        StockOrder buy100 = order(OrderType.BUY, 100, 0, 0);
+        StockOrder buy102 = order(OrderType.BUY, 102, 0, 1);
+        StockOrder buy100Later = order(OrderType.BUY, 100, 1, 0);
+        StockOrder buy98 = order(OrderType.BUY, 98, 1, 1);
+        book.add(buy100);
+        book.add(buy102);
+        book.add(buy100Later);
+        book.add(buy98);
+
+        assertSame(buy102, book.getBestBuyOrder());
+        assertEquals(List.of(buy102, buy100, buy100Later, buy98), toList(book.getBuyOrders()));
+        assertEquals(3, book.getBuyLevelCount());
+
+        StockOrder sell101 = order(OrderType.SELL, 101, 0, 2);
+        StockOrder sell99 = order(OrderType.SELL, 99, 0, 3);
+        book.add(sell101);
+        book.add(sell99);
+        assertSame(sell99, book.getBestSellOrder());
+        assertEquals(List.of(sell99, sell101), toList(book.getSellOrders()));
+
+        // Removing the last order of a level drops the level
+        book.remove(buy102);
+        assertFalse(buy102.isResting());
+        assertSame(buy100, book.getBestBuyOrder());
+        assertEquals(2, book.getBuyLevelCount());
+
+        // Removing from the middle of a level keeps the queue intact
+        book.remove(buy100);
+        assertSame(buy100Later, book.getBestBuyOrder());
+        assertEquals(List.of(buy100Later, buy98), toList(book.getBuyOrders()));
+
+        book.remove(buy98);
+        book.remove(buy100Later);
+        assertNull(book.getBestBuyOrder());
+        assertEquals(0, book.getBuyOrderCount());
+        assertEquals(0, book.getBuyLevelCount());
+        assertEquals(2, book.getSellOrderCount());
+    }
+
+    @Test
+    void fullExecution() throws Exception {
+        OrderBook book = OrderFixture.book();
+        StockOrder sell99 = order(OrderType.SELL, DueType.PERSISTENT, 2, 99, 0, 0);
+        StockOrder sell99FullExecution = order(OrderType.SELL, DueType.FULL_EXECUTION, 3, 99, 0, 1);
+        StockOrder sell100 = order(OrderType.SELL, DueType.PERSISTENT, 1, 100, 0, 2);
+        book.add(sell99);
+        book.add(sell99FullExecution);
+        book.add(sell100);
+        // Full execution orders can't be the second hand of a deal, so they don't count
+        assertEquals(2, sell99.level.fillableQuantity);
+
+        StockOrder buy = order(OrderType.BUY, DueType.FULL_EXECUTION, 4, 100, 1, 0);
+        book.add(buy);
+        assertEquals(0, book.match());
+        assertEquals(1, book.getFullExecutionRejectionCount());
+        assertEquals(4, buy.getQuantity());
+
+        StockOrder sell100Later = order(OrderType.SELL, DueType.PERSISTENT, 3, 100, 1, 1);
+        book.add(sell100Later);
+        assertEquals(3, book.match());
+        assertEquals(0, book.getFullExecutionRejectionCount());
+        assertTrue(buy.isFullyExecuted());
+        assertFalse(buy.isResting());
+        // The level totals follow the partial fill of the last sell order
+        assertEquals(2, sell100Later.getQuantity());
+        assertEquals(2, sell100Later.level.fillableQuantity);
+        assertEquals(0, sell99FullExecution.level.fillableQuantity);
+    }
+}
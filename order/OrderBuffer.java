@@ -0,0 +1,56 @@
+package order;
+
+import java.util.Arrays;
+
+/**
+ * What an investor decided in one round: any number of new orders and of ids of resting orders to cancel.
+ * Every investor fills its own buffer, which the system empties after taking the decisions, so the arrays
+ * are reused round after round.
+ */
+public class OrderBuffer {
+    private StockOrder[] orders = new StockOrder[1];
+    private int orderCount = 0;
+    private long[] cancels = new long[1];
+    private int cancelCount = 0;
+
+    public void add(StockOrder order) {
+        if (orderCount == orders.length) {
+            orders = Arrays.copyOf(orders, 2 * orderCount);
+        }
+        orders[orderCount++] = order;
+    }
+
+    public void cancel(long orderId) {
+        if (cancelCount == cancels.length) {
+            cancels = Arrays.copyOf(cancels, 2 * cancelCount);
+        }
+        cancels[cancelCount++] = orderId;
+    }
+
+    public int getOrderCount() {
+        return orderCount;
+    }
+
+    public StockOrder getOrder(int i) {
+        return orders[i];
+    }
+
+    public int getCancelCount() {
+        return cancelCount;
+    }
+
+    public long getCancel(int i) {
+        return cancels[i];
+    }
+
+    public boolean isEmpty() {
+        return orderCount == 0 && cancelCount == 0;
+    }
+
+    public void clear() {
+        // Let go of the orders, the system keeps the ones it accepted
+        Arrays.fill(orders, 0, orderCount, null);
+        orderCount = 0;
+        cancelCount = 0;
+    }
+}
@@ -0,0 +1,54 @@
+package order;
+
+import investor.Investor;
+import investor.InvestorFactory;
+import io.InputInfo;
+import io.InputReader;
+import system.SESystem;
+
+/**
+ * What the order tests share: an investor of the system in order/test.txt, with 1000 cash and 10 ABC,
+ * and orders of that investor for ABC, the system's only stock.
+ */
+class OrderFixture {
+    static final String STOCK = "ABC";
+
+    final SESystem system;
+    final Investor investor;
+
+    OrderFixture() throws InputReader.InputException, InvestorFactory.UnhandledInvestorTypeException {
+        InputInfo info = InputReader.readInput(new String[]{"order/test.txt", "10"});
+        system = new SESystem(info);
+        investor = InvestorFactory.createInvestor(info.getInvestorCounts().keySet().iterator().next(), system,
+                info.getWalletStocks(), info.getWalletCashCount());
+    }
+
+    static OrderBook book() {
+        return new OrderBook(STOCK, 0);
+    }
+
+    OrderInfo info(OrderType type, DueType dueType, Integer dueDate, int quantity, int priceLimit) {
+        OrderInfo orderInfo = new OrderInfo();
+        orderInfo.setType(type);
+        orderInfo.setDueType(dueType);
+        orderInfo.setDueDate(dueDate);
+        orderInfo.setStockID(STOCK);
+        orderInfo.setStockIndex(0);
+        orderInfo.setQuantity(quantity);
+        orderInfo.setPriceLimit(priceLimit);
+        orderInfo.setInvestor(investor);
+        return orderInfo;
+    }
+
+    /**
+     * An order as the system would have accepted it in the given round, with the given priority.
+     * Nothing is reserved for it.
+     */
+    StockOrder order(OrderType type, DueType dueType, Integer dueDate, int quantity, int priceLimit, int round,
+                     int priority) throws StockOrder.BadOrderException {
+        StockOrder order = new StockOrder(info(type, dueType, dueDate, quantity, priceLimit));
+        order.setRound(round);
+        order.setPriorityInRound(priority);
+        return order;
+    }
+}
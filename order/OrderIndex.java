@@ -0,0 +1,108 @@
+package order;
+
+/**
+ * Finds resting orders by id. An open addressing hash table with linear probing over the order ids,
+ * so a lookup is a multiplication and usually a single array read, and nothing is boxed.
+ * Removal shifts the following entries back instead of leaving tombstones, so the table never degrades.
+ */
+public class OrderIndex {
+    private static final int MIN_CAPACITY = 16;
+    private static final long GOLDEN_RATIO = 0x9E3779B97F4A7C15L;
+
+    private long[] ids;
+    private StockOrder[] orders; // null marks a free slot
+    private int mask;
+    private int shift;
+    private int size = 0;
+
+    public OrderIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Indexes an accepted order by its id, which must not be indexed yet.
+     */
+    public void add(StockOrder order) {
+        if (order.getId() == StockOrder.NO_ID) {
+            throw new IllegalArgumentException("Only accepted orders have an id");
+        }
+        // Kept at most half full, so probe sequences stay short
+        if (2 * (size + 1) > orders.length) {
+            allocate(2 * orders.length);
+        }
+        insert(order);
+        size++;
+    }
+
+    /**
+     * Returns the order with the given id, or null if it isn't indexed.
+     */
+    public StockOrder get(long id) {
+        for (int slot = slotOf(id); orders[slot] != null; slot = (slot + 1) & mask) {
+            if (ids[slot] == id) {
+                return orders[slot];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes the order with the given id and returns it, or null if it wasn't indexed.
+     */
+    public StockOrder remove(long id) {
+        int slot = slotOf(id);
+        while (orders[slot] != null && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+        StockOrder removed = orders[slot];
+        if (removed == null) {
+            return null;
+        }
+
+        // Move back every following entry whose probe sequence passes the freed slot
+        int free = slot;
+        for (int next = (free + 1) & mask; orders[next] != null; next = (next + 1) & mask) {
+            int home = slotOf(ids[next]);
+            if (((next - home) & mask) >= ((next - free) & mask)) {
+                ids[free] = ids[next];
+                orders[free] = orders[next];
+                free = next;
+            }
+        }
+        orders[free] = null;
+        size--;
+        return removed;
+    }
+
+    private int slotOf(long id) {
+        return (int) ((id * GOLDEN_RATIO) >>> shift);
+    }
+
+    private void insert(StockOrder order) {
+        int slot = slotOf(order.getId());
+        while (orders[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        ids[slot] = order.getId();
+        orders[slot] = order;
+    }
+
+    private void allocate(int capacity) {
+        StockOrder[] oldOrders = orders;
+        ids = new long[capacity];
+        orders = new StockOrder[capacity];
+        mask = capacity - 1;
+        shift = 64 - Integer.numberOfTrailingZeros(capacity);
+        if (oldOrders != null) {
+            for (StockOrder order : oldOrders) {
+                if (order != null) {
+                    insert(order);
+                }
+            }
+        }
+    }
+}
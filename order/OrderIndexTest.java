@@ -0,0 +1,42 @@
+package order;
+
+import org.junit.jupiter.api.Test;
+import utils.SplitMixRandom;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderIndexTest {
+
+    @Test
+    void againstHashMap() throws Exception {
+        OrderFixture fixture = new OrderFixture();
+
+        OrderIndex index = new OrderIndex();
+        Map<Long, StockOrder> expected = new HashMap<>();
+        SplitMixRandom random = new SplitMixRandom(5);
+        long nextId = 0;
+        for (int step = 0; step < 200_000; step++) {
+            // Grows for a while, then shrinks, so the table both resizes and empties again
+            boolean adding = step < 100_000 ? random.nextInt(3) > 0 : random.nextInt(3) == 0;
+            if (adding) {
+                StockOrder order = fixture.order(OrderType.BUY, DueType.PERSISTENT, null, 1, 1, 0, 0);
+                order.setId(nextId++);
+                index.add(order);
+                expected.put(order.getId(), order);
+            } else if (nextId > 0) {
+                long id = random.nextLong(nextId);
+                assertSame(expected.remove(id), index.remove(id));
+            }
+            if (step % 1000 == 0) {
+                for (long id = 0; id < nextId; id++) {
+                    assertSame(expected.get(id), index.get(id));
+                }
+            }
+            assertEquals(expected.size(), index.size());
+        }
+        assertNull(index.get(nextId));
+    }
+}
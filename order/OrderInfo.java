@@ -7,6 +7,7 @@ public class OrderInfo {
     private DueType dueType;
     private Integer dueDate;
     private String stockID;
+    private int stockIndex = -1;
     private int quantity;
     private int priceLimit;
     private Investor investor;
@@ -28,6 +29,10 @@ public class OrderInfo {
         return stockID;
     }
 
+    public int getStockIndex() {
+        return stockIndex;
+    }
+
     public int getQuantity() {
         return quantity;
     }
@@ -56,6 +61,14 @@ public class OrderInfo {
         this.stockID = stockID;
     }
 
+    /**
+     * Optional: the stock is the one of the stock ID, the index only saves the system looking it up.
+     * An index that doesn't match the ID is ignored.
+     */
+    public void setStockIndex(int stockIndex) {
+        this.stockIndex = stockIndex;
+    }
+
     public void setQuantity(int quantity) {
         this.quantity = quantity;
     }
@@ -67,4 +80,15 @@ public class OrderInfo {
     public void setInvestor(Investor investor) {
         this.investor = investor;
     }
+
+    public void clear() {
+        type = null;
+        dueType = null;
+        dueDate = null;
+        stockID = null;
+        stockIndex = -1;
+        quantity = 0;
+        priceLimit = 0;
+        investor = null;
+    }
 }
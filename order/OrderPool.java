@@ -0,0 +1,54 @@
+package order;
+
+/**
+ * A few spare orders of one investor. Orders go back here once the system is done with them,
+ * so that an investor placing an order every round keeps reusing the same handful of objects.
+ * Like the investor's decisions, used by one thread at a time.
+ */
+public class OrderPool {
+    private static final int CAPACITY = 4;
+
+    private StockOrder[] free; // allocated with the first returned order
+    private int freeCount = 0;
+
+    /**
+     * Returns an order made from the info, or null if the info doesn't make a valid order.
+     * The info is checked before any order is taken from the pool or allocated.
+     */
+    public StockOrder acquire(OrderInfo orderInfo) {
+        return acquire(orderInfo, true);
+    }
+
+    /**
+     * Same as {@link #acquire(OrderInfo)}, but may leave the wallet to be checked by the system.
+     */
+    public StockOrder acquire(OrderInfo orderInfo, boolean checkWallet) {
+        if (StockOrder.findProblem(orderInfo, checkWallet) != null) {
+            return null;
+        }
+        StockOrder order;
+        if (freeCount > 0) {
+            order = free[--freeCount];
+            free[freeCount] = null;
+        } else {
+            order = new StockOrder();
+            order.pool = this;
+        }
+        order.init(orderInfo);
+        return order;
+    }
+
+    public int getFreeCount() {
+        return freeCount;
+    }
+
+    void release(StockOrder order) {
+        if (free == null) {
+            free = new StockOrder[CAPACITY];
+        }
+        // Beyond the capacity the order is simply dropped
+        if (freeCount < CAPACITY) {
+            free[freeCount++] = order;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package order;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderPoolTest {
+
+    @Test
+    void reuse() throws Exception {
+        OrderInfo orderInfo = new OrderFixture().info(OrderType.BUY, DueType.DUE, 2, 1, 100);
+
+        OrderPool pool = new OrderPool();
+        orderInfo.setPriceLimit(0);
+        assertNull(pool.acquire(orderInfo));
+        assertEquals("Price limit must be positive", StockOrder.findProblem(orderInfo, true));
+        orderInfo.setPriceLimit(100);
+        assertNull(StockOrder.findProblem(orderInfo, true));
+
+        StockOrder order = pool.acquire(orderInfo);
+        order.setRound(0);
+        order.setPriorityInRound(0);
+        order.setId(1);
+        OrderBook book = OrderFixture.book();
+        ExpiryIndex expiryIndex = new ExpiryIndex(4);
+        book.add(order);
+        expiryIndex.add(order);
+        assertThrows(IllegalStateException.class, order::recycle);
+
+        // Leaves the book early and comes back as an order that expires later
+        book.remove(order);
+        order.recycle();
+        assertEquals(1, pool.getFreeCount());
+        assertThrows(IllegalStateException.class, order::recycle);
+
+        orderInfo.setType(OrderType.SELL);
+        orderInfo.setDueDate(5);
+        StockOrder reused = pool.acquire(orderInfo);
+        assertSame(order, reused);
+        assertEquals(0, pool.getFreeCount());
+        assertEquals(OrderType.SELL, reused.getType());
+        assertEquals(StockOrder.NO_ID, reused.getId());
+        assertEquals(-1, reused.getRound());
+        assertFalse(reused.isResting());
+
+        reused.setRound(1);
+        reused.setPriorityInRound(0);
+        reused.setId(2);
+        book.add(reused);
+        expiryIndex.add(reused);
+
+        // The stale entry of the first order doesn't expire the second one
+        List<StockOrder> expired = new ArrayList<>();
+        for (int round = 0; round <= 6; round++) {
+            int currentRound = round;
+            expiryIndex.expire(round, expiredOrder -> {
+                assertEquals(6, currentRound);
+                book.remove(expiredOrder);
+                expired.add(expiredOrder);
+            });
+        }
+        assertEquals(List.of(reused), expired);
+
+        // Orders made with new have no pool
+        StockOrder unpooled = new StockOrder(orderInfo);
+        unpooled.recycle();
+        unpooled.recycle();
+    }
+}
@@ -0,0 +1,73 @@
+package order;
+
+/**
+ * All orders resting on one side of a book at a single price.
+ * Orders are kept in arrival order, which is (round, priorityInRound) order, because the system
+ * only ever appends orders in the order it accepts them. The list is intrusive (the links live in
+ * {@link StockOrder}) so an order can be unlinked in O(1) wherever it sits in the queue.
+ */
+class PriceLevel {
+    final int price;
+    StockOrder head;
+    StockOrder tail;
+    int orderCount = 0;
+    // Quantity still open in the orders that can be the second hand of a deal, which are all but full execution ones
+    long fillableQuantity = 0;
+
+    // Neighbouring levels on the same side, ordered from the best price to the worst
+    PriceLevel better;
+    PriceLevel worse;
+
+    PriceLevel(int price) {
+        this.price = price;
+    }
+
+    void append(StockOrder order) {
+        order.level = this;
+        order.previousInLevel = tail;
+        order.nextInLevel = null;
+        if (tail == null) {
+            head = order;
+        } else {
+            tail.nextInLevel = order;
+        }
+        tail = order;
+        orderCount++;
+        if (order.getDueType() != DueType.FULL_EXECUTION) {
+            fillableQuantity += order.getQuantity();
+        }
+    }
+
+    void unlink(StockOrder order) {
+        if (order.previousInLevel == null) {
+            head = order.nextInLevel;
+        } else {
+            order.previousInLevel.nextInLevel = order.nextInLevel;
+        }
+        if (order.nextInLevel == null) {
+            tail = order.previousInLevel;
+        } else {
+            order.nextInLevel.previousInLevel = order.previousInLevel;
+        }
+        order.level = null;
+        order.previousInLevel = null;
+        order.nextInLevel = null;
+        orderCount--;
+        if (order.getDueType() != DueType.FULL_EXECUTION) {
+            fillableQuantity -= order.getQuantity();
+        }
+    }
+
+    /**
+     * Keeps the level's totals right when one of its orders gets filled in part.
+     */
+    void filled(StockOrder order, int quantity) {
+        if (order.getDueType() != DueType.FULL_EXECUTION) {
+            fillableQuantity -= quantity;
+        }
+    }
+
+    boolean isEmpty() {
+        return orderCount == 0;
+    }
+}
@@ -0,0 +1,11 @@
+package order;
+
+/**
+ * Why the system refused to accept an order.
+ */
+public enum RejectionReason {
+    UNKNOWN_STOCK, // the stock isn't traded on this exchange
+    PRICE_OUT_OF_RANGE, // the price limit is more than 10 away from the current price
+    NOT_ENOUGH_CASH, // a buy order the investor can't pay for
+    NOT_ENOUGH_STOCKS // a sell order for more stocks than the investor holds
+}
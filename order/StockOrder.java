@@ -1,37 +1,106 @@
 package order;
 
 import investor.Investor;
+import utils.SymbolRegistry;
 
-import java.util.ArrayList;
-import java.util.Optional;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 
 public class StockOrder {
 
+    public static final int NEVER_EXPIRES = Integer.MAX_VALUE;
+    // Returned by the primitive matching methods when no deal can be closed; prices are always positive
+    public static final int NO_DEAL = -1;
+    // Id of an order that was never accepted by the system
+    public static final long NO_ID = -1;
+
     public static class BadOrderException extends Exception {
         public BadOrderException(String message) {
             super(message);
         }
     }
-    private final OrderType type;
-    private final DueType dueType;
-    private final Integer dueDate;
-    private final String stockID;
+    // Not final, so that pooled orders can be reused, see OrderPool
+    private OrderType type;
+    private DueType dueType;
+    private Integer dueDate;
+    private String stockID;
+    private int stockIndex; // index in the system's symbol registry, -1 if not set
     private int quantity;
-    private final int priceLimit;
-    private final Investor investor;
+    private int priceLimit;
+    private Investor investor;
+    private long id = NO_ID; // given by the system when the order is accepted
     private boolean isNew = true;
     private int round = -1; // will be set by the system
     private int priorityInRound = -1; // will be set by the system
+    private int reservedCash = 0; // what is left of the cash set aside for a buy order
+
+    // Position in the order book, maintained by PriceLevel
+    PriceLevel level;
+    StockOrder previousInLevel;
+    StockOrder nextInLevel;
+
+    // The pool the order goes back to once the system is done with it, null for orders made with new
+    OrderPool pool;
+    boolean isRecycled = false;
 
     public StockOrder(OrderInfo orderInfo) throws BadOrderException {
+        this(orderInfo, true);
+    }
+
+    // Orders restored from a checkpoint were accepted long ago, the wallet may not cover them anymore
+    private StockOrder(OrderInfo orderInfo, boolean checkWallet) throws BadOrderException {
+        String problem = findProblem(orderInfo, checkWallet);
+        if (problem != null) {
+            throw new BadOrderException(problem);
+        }
+        init(orderInfo);
+    }
+
+    // Filled in by OrderPool
+    StockOrder() {
+    }
+
+    /**
+     * Makes this a new order from the info, which must have been checked already.
+     */
+    void init(OrderInfo orderInfo) {
         this.type = orderInfo.getType();
         this.dueType = orderInfo.getDueType();
         this.dueDate = orderInfo.getDueDate();
         this.stockID = orderInfo.getStockID();
+        this.stockIndex = orderInfo.getStockIndex();
         this.quantity = orderInfo.getQuantity();
         this.priceLimit = orderInfo.getPriceLimit();
         this.investor = orderInfo.getInvestor();
-        runChecks();
+        id = NO_ID;
+        isNew = true;
+        round = -1;
+        priorityInRound = -1;
+        reservedCash = 0;
+        level = null;
+        previousInLevel = null;
+        nextInLevel = null;
+        isRecycled = false;
+    }
+
+    /**
+     * Hands the order back to its pool once the system is done with it: it was rejected, cancelled, expired
+     * or filled and reported. Nothing may use the order afterwards, it will come back as another one.
+     * Orders made with new are left to the garbage collector.
+     */
+    public void recycle() {
+        if (pool == null) {
+            return;
+        }
+        if (isRecycled) {
+            throw new IllegalStateException("Order recycled twice: " + this);
+        }
+        if (level != null) {
+            throw new IllegalStateException("Recycling an order resting in the book: " + this);
+        }
+        isRecycled = true;
+        pool.release(this);
     }
 
     public void setRound(int round) {
@@ -44,14 +113,37 @@ public class StockOrder {
 
     public int getRound() { return round; }
 
+    /**
+     * Set by the system when it resolves the order's stock ID to its index.
+     */
+    public void setStockIndex(int stockIndex) {
+        this.stockIndex = stockIndex;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public long getId() {
+        return id;
+    }
+
     public OrderType getType() {
         return type;
     }
 
+    public DueType getDueType() {
+        return dueType;
+    }
+
     public String getStockID() {
         return stockID;
     }
 
+    public int getStockIndex() {
+        return stockIndex;
+    }
+
     public int getQuantity() {
         return quantity;
     }
@@ -80,6 +172,94 @@ public class StockOrder {
 
     public int getPriorityInRound() { return priorityInRound; }
 
+    /**
+     * Saves the order as it is now, all but its investor, which the reader has to know.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeByte(dueType.ordinal());
+        out.writeBoolean(dueDate != null);
+        out.writeInt(dueDate == null ? 0 : dueDate);
+        out.writeInt(stockIndex);
+        out.writeInt(quantity);
+        out.writeInt(priceLimit);
+        out.writeLong(id);
+        out.writeInt(round);
+        out.writeInt(priorityInRound);
+        out.writeBoolean(isNew);
+        out.writeInt(reservedCash);
+    }
+
+    /**
+     * Recreates an order saved by {@link #writeState(DataOutput)}, looking its stock ID up by index.
+     * What the order reserved is only restored in the order, the investor's reservations are saved with the investor.
+     */
+    public static StockOrder readState(DataInput in, Investor investor, SymbolRegistry symbols) throws IOException {
+        OrderInfo orderInfo = new OrderInfo();
+        orderInfo.setType(OrderType.values()[in.readByte()]);
+        orderInfo.setDueType(DueType.values()[in.readByte()]);
+        boolean hasDueDate = in.readBoolean();
+        int dueDate = in.readInt();
+        orderInfo.setDueDate(hasDueDate ? dueDate : null);
+        int stockIndex = in.readInt();
+        if (stockIndex < 0 || stockIndex >= symbols.size()) {
+            throw new IOException("Saved order for unknown stock index " + stockIndex);
+        }
+        orderInfo.setStockIndex(stockIndex);
+        orderInfo.setStockID(symbols.getSymbol(stockIndex));
+        orderInfo.setQuantity(in.readInt());
+        orderInfo.setPriceLimit(in.readInt());
+        orderInfo.setInvestor(investor);
+
+        StockOrder order;
+        try {
+            order = new StockOrder(orderInfo, false);
+        } catch (BadOrderException e) {
+            throw new IOException("Bad saved order: " + e.getMessage(), e);
+        }
+        order.id = in.readLong();
+        order.round = in.readInt();
+        order.priorityInRound = in.readInt();
+        order.isNew = in.readBoolean();
+        order.reservedCash = in.readInt();
+        return order;
+    }
+
+    /**
+     * Sets aside what the order may need: the cash a buy order may spend at most or the stocks a sell order
+     * offers. Called when the system accepts the order, so that every resting order can always be filled
+     * and matching never has to look at the investors' wallets.
+     */
+    public void reserve() {
+        if (type == OrderType.BUY) {
+            reservedCash = quantity * priceLimit;
+            investor.reserveCash(reservedCash);
+        } else {
+            investor.reserveStock(stockIndex, quantity);
+        }
+    }
+
+    /**
+     * Gives whatever this order still has reserved back to the investor, when it leaves the book unfilled
+     * or, for a buy order, with cash left over from buying below its limit.
+     */
+    public void release() {
+        if (type == OrderType.BUY) {
+            investor.releaseReservedCash(reservedCash);
+            reservedCash = 0;
+        } else {
+            investor.releaseReservedStock(stockIndex, quantity);
+        }
+    }
+
+    public int getReservedCash() {
+        return reservedCash;
+    }
+
+    public boolean isResting() {
+        return level != null;
+    }
+
     public boolean isFullyExecuted() {
         return quantity == 0;
     }
@@ -98,17 +278,38 @@ public class StockOrder {
         };
     }
 
-    public Optional<Integer> closeDealWith(StockOrder dealOrder) {
-        Optional<Integer> closingPrice = canBeClosedWith(dealOrder);
-        if (closingPrice.isEmpty()) {
-            return Optional.empty();
+    /**
+     * Returns the first round in which the order is overdue, or NEVER_EXPIRES for persistent orders.
+     * An order always lives at least through the round it was placed in. An order due in the last round
+     * there is never expires, like a persistent one.
+     */
+    public int getExpiryRound() {
+        return switch (dueType) {
+            case DUE -> {
+                long expiryRound = (long) Math.max(dueDate, round) + 1;
+                yield expiryRound >= NEVER_EXPIRES ? NEVER_EXPIRES : (int) expiryRound;
+            }
+            case IMMEDIATE, FULL_EXECUTION -> round + 1;
+            default -> NEVER_EXPIRES;
+        };
+    }
+
+    /**
+     * Closes as big a deal with the given order as possible. Returns the closing price, or NO_DEAL if no deal
+     * can be closed.
+     */
+    public int tryCloseDealWith(StockOrder dealOrder) {
+        int closingPrice = getClosingPriceWith(dealOrder);
+        if (closingPrice == NO_DEAL) {
+            return NO_DEAL;
         }
 
         int quantityToClose = Math.min(quantity, dealOrder.quantity);
-        int fullPrice = quantityToClose * closingPrice.get();
+        int fullPrice = quantityToClose * closingPrice;
 
+        StockOrder buyOrder = type == OrderType.BUY ? this : dealOrder;
         Investor seller = type == OrderType.BUY ? dealOrder.investor : investor;
-        Investor buyer = type == OrderType.BUY ? investor : dealOrder.investor;
+        Investor buyer = buyOrder.investor;
 
         /* Useful for debugging
         System.out.println("Deal closed: " + quantityToClose + " stocks of " + stockID +
@@ -119,76 +320,43 @@ public class StockOrder {
 
          */
 
-        buyer.pay(fullPrice);
-        seller.receive(fullPrice);
-
-        seller.pay(stockID, quantityToClose);
-        buyer.receive(stockID, quantityToClose);
+        // Paid from what both orders reserved, so only this stock's holdings and the order's own cash change here
+        // and other books can be matched at the same time. The rest is settled once all books are matched.
+        buyOrder.reservedCash -= fullPrice;
+        seller.payUnsettled(stockIndex, quantityToClose);
+        buyer.receiveUnsettled(stockIndex, quantityToClose);
 
-        quantity -= quantityToClose;
-        dealOrder.quantity -= quantityToClose;
+        reduceQuantity(quantityToClose);
+        dealOrder.reduceQuantity(quantityToClose);
         isNew = false;
         dealOrder.isNew = false;
         return closingPrice;
     }
 
-    public Optional<Integer> canBeClosedWith(StockOrder dealOrder) {
+    private void reduceQuantity(int filledQuantity) {
+        quantity -= filledQuantity;
+        if (level != null) {
+            level.filled(this, filledQuantity);
+        }
+    }
+
+    /**
+     * Returns the price a deal with the given order would be closed at, or NO_DEAL if it can't be closed.
+     */
+    public int getClosingPriceWith(StockOrder dealOrder) {
         int quantityToClose = Math.min(quantity, dealOrder.quantity);
 
         if (quantityToClose == 0 || !arePricesCloseable(dealOrder)) {
-            return Optional.empty();
+            return NO_DEAL;
         }
 
         // The second hand deal cant be a full execution, it doesn't work that way
         if (dealOrder.dueType == DueType.FULL_EXECUTION) {
-            return Optional.empty();
+            return NO_DEAL;
         }
 
-        int closingPrice = getClosingPrice(dealOrder);
-        int fullPrice = quantityToClose * closingPrice;
-
-        Investor seller = type == OrderType.BUY ? dealOrder.investor : investor;
-        Investor buyer = type == OrderType.BUY ? investor : dealOrder.investor;
-
-
-        if (buyer.getCash() >= fullPrice && seller.getStockCount(stockID) >= quantityToClose) {
-            return Optional.of(closingPrice);
-        }
-        return Optional.empty();
-    }
-
-    public boolean canBeClosedWith(ArrayList<StockOrder> ordersToPairWith) {
-        if (dueType != DueType.FULL_EXECUTION) {
-            for (StockOrder matchingOrder : ordersToPairWith) {
-                if (canBeClosedWith(matchingOrder).isPresent()) {
-                    return true;
-                }
-            }
-            return false;
-        }
-
-        int quantityGathered = 0;
-        int priceGathered = 0;
-        int quantityToClose;
-        // This order is full execution, we can only close with it if it can be closed fully
-        for (StockOrder matchingOrder : ordersToPairWith) {
-            Optional<Integer> closingPrice = canBeClosedWith(matchingOrder);
-            if (closingPrice.isEmpty()) {
-                continue;
-            }
-            quantityToClose = Math.min(quantity, matchingOrder.quantity);
-            if (quantity - quantityGathered < quantityToClose) {
-                quantityToClose = quantity - quantityGathered;
-                priceGathered += quantityToClose * closingPrice.get();
-                break;
-            }
-            quantityGathered += quantityToClose;
-            priceGathered += quantityToClose * closingPrice.get();
-        }
-        if (quantityGathered == quantity && priceGathered <= investor.getCash()) {
-            return true;
-        }
-        return false;
+        // Both orders reserved enough to close any deal between them
+        return getClosingPrice(dealOrder);
     }
 
     public boolean arePricesCloseable(StockOrder order) {
@@ -199,53 +367,71 @@ public class StockOrder {
         }
     }
 
-    private int getClosingPrice(StockOrder dealOrder) {
-        if (round < dealOrder.getRound()) {
-            return priceLimit;
-        } else if (round > dealOrder.getRound()) {
-            return dealOrder.priceLimit;
-        } else if (priorityInRound < dealOrder.getPriorityInRound()) {
-            return priceLimit;
-        } else {
-            return dealOrder.priceLimit;
+    /**
+     * Whether this order was placed before the given one. In a deal the later order is the aggressor,
+     * and the earlier one sets the price.
+     */
+    public boolean isPlacedBefore(StockOrder order) {
+        if (round != order.round) {
+            return round < order.round;
         }
+        return priorityInRound < order.priorityInRound;
     }
 
-    private void runChecks() throws BadOrderException {
+    private int getClosingPrice(StockOrder dealOrder) {
+        return isPlacedBefore(dealOrder) ? priceLimit : dealOrder.priceLimit;
+    }
+
+    /**
+     * Returns why no valid order can be made from the info, or null if one can.
+     * Lets the info be checked before an order is allocated for it.
+     */
+    public static String findProblem(OrderInfo orderInfo, boolean checkWallet) {
+        OrderType type = orderInfo.getType();
+        DueType dueType = orderInfo.getDueType();
+        int quantity = orderInfo.getQuantity();
+        int priceLimit = orderInfo.getPriceLimit();
+        Investor investor = orderInfo.getInvestor();
+
         if (priceLimit <= 0) {
-            throw new BadOrderException("Price limit must be positive");
+            return "Price limit must be positive";
         }
 
         if (quantity <= 0) {
-            throw new BadOrderException("Quantity must be positive");
+            return "Quantity must be positive";
         }
 
         if (dueType == null) {
-            throw new BadOrderException("Due type must be specified");
+            return "Due type must be specified";
         }
 
-        if (dueType == DueType.DUE && dueDate == null) {
-            throw new BadOrderException("Due date must be specified for due orders");
+        if (dueType == DueType.DUE && orderInfo.getDueDate() == null) {
+            return "Due date must be specified for due orders";
         }
 
         if (type == null) {
-            throw new BadOrderException("Order type must be specified");
+            return "Order type must be specified";
         }
 
-        if (stockID == null) {
-            throw new BadOrderException("Stock ID must be specified");
+        if (orderInfo.getStockID() == null) {
+            return "Stock ID must be specified";
         }
 
         if (investor == null) {
-            throw new BadOrderException("Investor must be specified");
+            return "Investor must be specified";
+        }
+
+        if (!checkWallet) {
+            return null;
         }
 
         if (type == OrderType.BUY && investor.getCash() < priceLimit * quantity) {
-            throw new BadOrderException("Investor does not have enough cash to place the order");
+            return "Investor does not have enough cash to place the order";
         }
 
-        if (type == OrderType.SELL && investor.getStockCount(stockID) < quantity) {
-            throw new BadOrderException("Investor does not have enough stocks to place the order");
+        if (type == OrderType.SELL && investor.getStockCount(orderInfo.getStockID()) < quantity) {
+            return "Investor does not have enough stocks to place the order";
         }
+        return null;
     }
 }
@@ -0,0 +1,25 @@
+#!/bin/sh
+# Runs the simulation from the launcher jar built by `mvn package`.
+# Usage: ./run.sh <input file> <round count>
+#
+# JVM settings come from the environment:
+#   SE_HEAP    heap size used for both -Xms and -Xmx, e.g. 4g
+#   SE_GC      garbage collector: G1, Parallel, Serial, Z or Shenandoah
+#   JAVA_OPTS  any other JVM flags, passed as they are
+DIR=$(dirname "$0")
+JAR="$DIR/target/stock-exchange.jar"
+
+if [ ! -f "$JAR" ]; then
+    echo "$JAR not found, build it with: mvn package" >&2
+    exit 1
+fi
+
+FLAGS=""
+if [ -n "$SE_HEAP" ]; then
+    FLAGS="$FLAGS -Xms$SE_HEAP -Xmx$SE_HEAP"
+fi
+if [ -n "$SE_GC" ]; then
+    FLAGS="$FLAGS -XX:+Use${SE_GC}GC"
+fi
+
+exec java $FLAGS $JAVA_OPTS -jar "$JAR" "$@"
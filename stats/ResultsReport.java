@@ -0,0 +1,205 @@
+package stats;
+
+import investor.Investor;
+import investor.InvestorType;
+import utils.ParallelLoop;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Net worth statistics of every investor type at the end of a simulation, exportable as JSON or CSV.
+ */
+public class ResultsReport {
+    // Investors valued by a single task of the parallel pass
+    private static final int VALUATION_GRAIN = 4096;
+    // Below this many investors of a type sorting them in parallel does not pay off
+    private static final int PARALLEL_SORT_THRESHOLD = 1 << 16;
+    private static final String CSV_HEADER = "type,count,mean,median,min,p10,p25,p75,p90,p99,max,beating_start_share,mean_start_net_worth";
+
+    private final int round;
+    private final int transactionCount;
+    private final Map<String, Integer> startPrices;
+    private final Map<String, Integer> endPrices;
+    private final StrategyStats[] byType; // indexed by investor type ordinal
+    private final StrategyStats overall;
+
+    private ResultsReport(int round, int transactionCount, Map<String, Integer> startPrices, Map<String, Integer> endPrices,
+                          StrategyStats[] byType, StrategyStats overall) {
+        this.round = round;
+        this.transactionCount = transactionCount;
+        this.startPrices = startPrices;
+        this.endPrices = endPrices;
+        this.byType = byType;
+        this.overall = overall;
+    }
+
+    /**
+     * Values every investor exactly once, on the pool if there is one, and aggregates the net worths by type.
+     */
+    public static ResultsReport of(List<Investor> investors, ForkJoinPool pool, int round, int transactionCount,
+                                   Map<String, Integer> startPrices, Map<String, Integer> endPrices) {
+        int investorCount = investors.size();
+        int[] netWorths = new int[investorCount];
+        ParallelLoop.forEach(pool, investorCount, VALUATION_GRAIN, i -> netWorths[i] = investors.get(i).calculateNetWorth());
+
+        InvestorType[] types = InvestorType.values();
+        int[] counts = new int[types.length];
+        long[] netWorthSums = new long[types.length];
+        long[] startNetWorthSums = new long[types.length];
+        int[] beatingStartCounts = new int[types.length];
+        for (int i = 0; i < investorCount; i++) {
+            Investor investor = investors.get(i);
+            int type = investor.getType().ordinal();
+            counts[type]++;
+            netWorthSums[type] += netWorths[i];
+            startNetWorthSums[type] += investor.getStartNetWorth();
+            if (netWorths[i] > investor.getStartNetWorth()) {
+                beatingStartCounts[type]++;
+            }
+        }
+
+        // Group the net worths by type, each type's range sorted on its own
+        int[] offsets = new int[types.length + 1];
+        for (int type = 0; type < types.length; type++) {
+            offsets[type + 1] = offsets[type] + counts[type];
+        }
+        int[] grouped = new int[investorCount];
+        int[] next = Arrays.copyOf(offsets, types.length);
+        for (int i = 0; i < investorCount; i++) {
+            grouped[next[investors.get(i).getType().ordinal()]++] = netWorths[i];
+        }
+        StrategyStats[] byType = new StrategyStats[types.length];
+        for (int type = 0; type < types.length; type++) {
+            sort(grouped, offsets[type], offsets[type + 1], pool);
+            byType[type] = StrategyStats.of(types[type].name(), grouped, offsets[type], offsets[type + 1],
+                    netWorthSums[type], beatingStartCounts[type], startNetWorthSums[type]);
+        }
+
+        // The whole population only needs its own sort, the sums are already there
+        sort(netWorths, 0, investorCount, pool);
+        StrategyStats overall = StrategyStats.of("ALL", netWorths, 0, investorCount, Arrays.stream(netWorthSums).sum(),
+                Arrays.stream(beatingStartCounts).sum(), Arrays.stream(startNetWorthSums).sum());
+        return new ResultsReport(round, transactionCount, startPrices, endPrices, byType, overall);
+    }
+
+    private static void sort(int[] array, int from, int to, ForkJoinPool pool) {
+        if (pool != null && to - from >= PARALLEL_SORT_THRESHOLD) {
+            // Started on a worker of the pool, the sort forks its subtasks there rather than on the common pool
+            pool.submit(() -> Arrays.parallelSort(array, from, to)).join();
+        } else {
+            Arrays.sort(array, from, to);
+        }
+    }
+
+    public int getRound() {
+        return round;
+    }
+
+    public int getTransactionCount() {
+        return transactionCount;
+    }
+
+    public Map<String, Integer> getStartPrices() {
+        return Collections.unmodifiableMap(startPrices);
+    }
+
+    public Map<String, Integer> getEndPrices() {
+        return Collections.unmodifiableMap(endPrices);
+    }
+
+    /**
+     * Statistics of the type, empty if there are no investors of that type.
+     */
+    public StrategyStats get(InvestorType type) {
+        return byType[type.ordinal()];
+    }
+
+    public List<StrategyStats> getByType() {
+        return List.of(byType);
+    }
+
+    public StrategyStats getOverall() {
+        return overall;
+    }
+
+    /**
+     * One line per investor type followed by one for all investors, undefined values of empty groups left empty.
+     */
+    public void writeCsv(Writer writer) throws IOException {
+        writer.write(CSV_HEADER);
+        writer.write('\n');
+        List<StrategyStats> rows = new ArrayList<>(getByType());
+        rows.add(overall);
+        for (StrategyStats stats : rows) {
+            StringBuilder line = new StringBuilder().append(stats.getName()).append(',').append(stats.getCount());
+            if (stats.isEmpty()) {
+                line.append(",".repeat(CSV_HEADER.split(",").length - 2));
+            } else {
+                line.append(',').append(stats.getMean()).append(',').append(stats.getMedian()).append(',').append(stats.getMin());
+                for (int percentile : StrategyStats.PERCENTILES) {
+                    line.append(',').append(stats.getPercentile(percentile));
+                }
+                line.append(',').append(stats.getMax())
+                        .append(',').append(stats.getBeatingStartShare())
+                        .append(',').append(stats.getMeanStartNetWorth());
+            }
+            writer.write(line.toString());
+            writer.write('\n');
+        }
+    }
+
+    /**
+     * The whole report as one JSON object, undefined values of empty groups are null.
+     */
+    public void writeJson(Writer writer) throws IOException {
+        StringBuilder json = new StringBuilder();
+        json.append("{\n  \"round\": ").append(round)
+                .append(",\n  \"transactions\": ").append(transactionCount)
+                .append(",\n  \"startPrices\": ");
+        appendPrices(json, startPrices);
+        json.append(",\n  \"endPrices\": ");
+        appendPrices(json, endPrices);
+        json.append(",\n  \"types\": [");
+        for (int type = 0; type < byType.length; type++) {
+            json.append(type == 0 ? "\n    " : ",\n    ");
+            appendStats(json, byType[type]);
+        }
+        json.append("\n  ],\n  \"overall\": ");
+        appendStats(json, overall);
+        json.append("\n}\n");
+        writer.write(json.toString());
+    }
+
+    private static void appendPrices(StringBuilder json, Map<String, Integer> prices) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Integer> entry : prices.entrySet()) {
+            json.append(first ? "" : ", ").append('"').append(entry.getKey()).append("\": ").append(entry.getValue());
+            first = false;
+        }
+        json.append('}');
+    }
+
+    private static void appendStats(StringBuilder json, StrategyStats stats) {
+        boolean empty = stats.isEmpty();
+        json.append("{\"type\": \"").append(stats.getName())
+                .append("\", \"count\": ").append(stats.getCount())
+                .append(", \"mean\": ").append(empty ? "null" : stats.getMean())
+                .append(", \"median\": ").append(empty ? "null" : stats.getMedian())
+                .append(", \"min\": ").append(empty ? "null" : stats.getMin());
+        for (int percentile : StrategyStats.PERCENTILES) {
+            json.append(", \"p").append(percentile).append("\": ").append(empty ? "null" : stats.getPercentile(percentile));
+        }
+        json.append(", \"max\": ").append(empty ? "null" : stats.getMax())
+                .append(", \"beatingStartShare\": ").append(empty ? "null" : stats.getBeatingStartShare())
+                .append(", \"meanStartNetWorth\": ").append(empty ? "null" : stats.getMeanStartNetWorth())
+                .append('}');
+    }
+}
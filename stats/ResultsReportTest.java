@@ -0,0 +1,93 @@
+package stats;
+
+import batch.Scenario;
+import investor.Investor;
+import investor.InvestorType;
+import io.InputReader;
+import org.junit.jupiter.api.Test;
+import system.SESystem;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResultsReportTest {
+
+    @Test
+    void strategyStats() {
+        int[] sorted = new int[100];
+        for (int i = 0; i < sorted.length; i++) {
+            sorted[i] = i + 1;
+        }
+        StrategyStats stats = StrategyStats.of("X", sorted, 0, 100, 5050, 30, 4000);
+        assertEquals(100, stats.getCount());
+        assertEquals(50.5, stats.getMean());
+        assertEquals(50.5, stats.getMedian());
+        assertEquals(1, stats.getMin());
+        assertEquals(100, stats.getMax());
+        assertEquals(10, stats.getPercentile(10));
+        assertEquals(99, stats.getPercentile(99));
+        assertEquals(0.3, stats.getBeatingStartShare());
+        assertEquals(40, stats.getMeanStartNetWorth());
+        assertThrows(IllegalArgumentException.class, () -> stats.getPercentile(50));
+
+        StrategyStats single = StrategyStats.of("X", sorted, 6, 7, 7, 0, 7);
+        assertEquals(7, single.getMedian());
+        assertEquals(7, single.getPercentile(10));
+        assertEquals(7, single.getPercentile(99));
+
+        assertTrue(StrategyStats.of("X", sorted, 3, 3, 0, 0, 0).isEmpty());
+    }
+
+    @Test
+    void missingType() throws InputReader.InputException, IOException {
+        // Only SMA's
+        SESystem system = new SESystem(InputReader.readInput(new String[]{"system/testfiles/test1.txt", "10"}));
+        system.run();
+        ResultsReport report = system.createReport();
+        assertTrue(report.get(InvestorType.RANDOM).isEmpty());
+        assertEquals(5, report.get(InvestorType.SMA).getCount());
+        assertEquals(0, report.get(InvestorType.SMA).getBeatingStartShare());
+
+        StringWriter json = new StringWriter();
+        report.writeJson(json);
+        assertTrue(json.toString().contains("{\"type\": \"RANDOM\", \"count\": 0, \"mean\": null"));
+        assertFalse(json.toString().contains("NaN"));
+
+        StringWriter csv = new StringWriter();
+        report.writeCsv(csv);
+        String[] lines = csv.toString().split("\n");
+        assertEquals(InvestorType.values().length + 2, lines.length);
+        int columnCount = lines[0].split(",", -1).length;
+        for (String line : lines) {
+            assertEquals(columnCount, line.split(",", -1).length);
+        }
+    }
+
+    @Test
+    void parallel() throws InputReader.InputException {
+        Scenario scenario = Scenario.parse("big system/testfiles/testMoodle.txt 20 seed=3 investors=R*20000,S*5000");
+        SESystem system = new SESystem(scenario.toInputInfo());
+        system.run();
+        List<Investor> investors = system.getInvestors();
+
+        ResultsReport sequential = ResultsReport.of(investors, null, 0, 0, system.getStockPrices(), system.getStockPrices());
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ResultsReport parallel = ResultsReport.of(investors, pool, 0, 0, system.getStockPrices(), system.getStockPrices());
+        pool.shutdown();
+        for (InvestorType type : InvestorType.values()) {
+            assertEquals(sequential.get(type).toString(), parallel.get(type).toString());
+        }
+        assertEquals(25000, parallel.getOverall().getCount());
+
+        long sum = 0;
+        for (Investor investor : investors) {
+            sum += investor.calculateNetWorth();
+        }
+        assertEquals((double) sum / investors.size(), parallel.getOverall().getMean(), 1e-9);
+        system.close();
+    }
+}
@@ -0,0 +1,123 @@
+package stats;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Net worth aggregates of a group of investors, usually all investors of one type.
+ * Everything but the count is undefined for an empty group, see {@link #isEmpty()}.
+ */
+public class StrategyStats {
+    // Percentiles reported for every group, nearest-rank
+    static final int[] PERCENTILES = {10, 25, 75, 90, 99};
+
+    private final String name;
+    private final int count;
+    private final double mean;
+    private final double median;
+    private final int min;
+    private final int max;
+    private final int[] percentiles;
+    private final double beatingStartShare;
+    private final double meanStartNetWorth;
+
+    private StrategyStats(String name, int count, double mean, double median, int min, int max, int[] percentiles,
+                          double beatingStartShare, double meanStartNetWorth) {
+        this.name = name;
+        this.count = count;
+        this.mean = mean;
+        this.median = median;
+        this.min = min;
+        this.max = max;
+        this.percentiles = percentiles;
+        this.beatingStartShare = beatingStartShare;
+        this.meanStartNetWorth = meanStartNetWorth;
+    }
+
+    /**
+     * Aggregates of the net worths in sorted[from, to), which must be sorted in ascending order.
+     */
+    static StrategyStats of(String name, int[] sorted, int from, int to, long netWorthSum,
+                            int beatingStartCount, long startNetWorthSum) {
+        int count = to - from;
+        if (count == 0) {
+            return new StrategyStats(name, 0, 0, 0, 0, 0, new int[PERCENTILES.length], 0, 0);
+        }
+        double median = ((long) sorted[from + (count - 1) / 2] + sorted[from + count / 2]) / 2.0;
+        int[] percentiles = new int[PERCENTILES.length];
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            int rank = (int) Math.ceil(PERCENTILES[i] / 100.0 * count); // 1-based
+            percentiles[i] = sorted[from + Math.max(rank, 1) - 1];
+        }
+        return new StrategyStats(name, count, (double) netWorthSum / count, median, sorted[from], sorted[to - 1],
+                percentiles, (double) beatingStartCount / count, (double) startNetWorthSum / count);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCount() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public double getMean() {
+        return mean;
+    }
+
+    public double getMedian() {
+        return median;
+    }
+
+    public int getMin() {
+        return min;
+    }
+
+    public int getMax() {
+        return max;
+    }
+
+    /**
+     * One of the reported percentiles: 10, 25, 75, 90 or 99.
+     */
+    public int getPercentile(int percentile) {
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            if (PERCENTILES[i] == percentile) {
+                return percentiles[i];
+            }
+        }
+        throw new IllegalArgumentException("Percentile " + percentile + " is not reported, only " + Arrays.toString(PERCENTILES));
+    }
+
+    /**
+     * Share of the investors that ended with a higher net worth than they started with.
+     */
+    public double getBeatingStartShare() {
+        return beatingStartShare;
+    }
+
+    public double getMeanStartNetWorth() {
+        return meanStartNetWorth;
+    }
+
+    @Override
+    public String toString() {
+        if (isEmpty()) {
+            return name + ": no investors";
+        }
+        StringBuilder builder = new StringBuilder();
+        builder.append(name).append(": ").append(count).append(" investors, mean net worth ").append(String.format(Locale.ROOT, "%.2f", mean))
+                .append(" (started with ").append(String.format(Locale.ROOT, "%.2f", meanStartNetWorth)).append("), median ").append(median)
+                .append(", min ").append(min);
+        for (int i = 0; i < PERCENTILES.length; i++) {
+            builder.append(", p").append(PERCENTILES[i]).append(' ').append(percentiles[i]);
+        }
+        builder.append(", max ").append(max)
+                .append(", ").append(String.format(Locale.ROOT, "%.1f", beatingStartShare * 100)).append("% beat their start net worth");
+        return builder.toString();
+    }
+}
@@ -0,0 +1,12 @@
+package system;
+
+/**
+ * How the books are matched. Deals are always paid from what the orders reserved when they were accepted and
+ * settled in stock order after all books are matched, so both modes give the same results.
+ */
+public enum MatchingMode {
+    // Books are matched one after another on the calling thread
+    SEQUENTIAL,
+    // Books are matched in parallel on the system's threads
+    PARALLEL
+}
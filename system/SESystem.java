@@ -1,143 +1,488 @@
 package system;
 
+import event.OrderEventListener;
+import event.TradeBus;
+import event.TradeSink;
 import investor.*;
 import io.InputInfo;
+import io.Wallet;
+import metrics.Phase;
+import metrics.SimulationMetrics;
+import order.ExpiryIndex;
+import order.FillLog;
+import order.OrderBook;
+import order.OrderBuffer;
+import order.OrderIndex;
 import order.OrderType;
+import order.RejectionReason;
 import order.StockOrder;
+import stats.ResultsReport;
+import stats.StrategyStats;
 import utils.IndexPermutation;
-
+import utils.ParallelLoop;
+import utils.SplitMixRandom;
+import utils.SymbolRegistry;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+public class SESystem implements AutoCloseable {
+    // Investors decided by a single task of the parallel decision phase
+    private static final int DECISION_GRAIN = 1024;
+    // Larger populations are only summarised by the results
+    private static final int PRINTED_INVESTOR_LIMIT = 1000;
+    private static final int CHECKPOINT_MAGIC = 0x53454350; // "SECP"
+    private static final int CHECKPOINT_VERSION = 3;
 
-public class SESystem {
     private final ArrayList<Investor> investors;
-    private final HashMap<String, ArrayList<StockOrder>> buyOrdersSheet = new HashMap<>();
-    private final HashMap<String, ArrayList<StockOrder>> sellOrdersSheet = new HashMap<>();
-    private final Map<String, Integer> stockPrices;
-    private final Map<String, Integer> firstStockPrices;
+    private final SymbolRegistry symbols;
+    // All per-stock state is indexed by the stock's index in the symbol registry
+    private final OrderBook[] orderBooks;
+    private final int[] stockPrices;
+    private final int[] firstStockPrices;
+    private final ExpiryIndex expiryIndex = new ExpiryIndex();
+    private final OrderIndex orderIndex = new OrderIndex(); // every resting order by id
+    private final int[] dealCounts;
+    private final MatchingMode matchingMode;
+    private final ForkJoinPool pool; // null when everything runs on the calling thread
+    private final boolean parallelDecisions;
+    private final IndexPermutation investorOrder;
+    private TradeBus tradeBus; // null until the first trade sink is added
+    private final List<OrderEventListener> orderListeners = new ArrayList<>();
+    private long nextOrderId = 0;
+    private int nextInvestorId = 0;
+    private Path checkpointPath; // null when no checkpoints are saved while running
+    private int checkpointInterval;
+    private final SimulationMetrics metrics;
+    private PrintStream metricsOut; // null when the metrics are not printed while running
+    private int metricsInterval;
     private final int roundCount;
     private int currentRound = 0;
     private int totalTransactionCount = 0;
 
     private final SMATracker smaTracker;
 
-    private final Comparator<StockOrder> buyOrdersComparator = Comparator.comparing(StockOrder::getPriceLimit).reversed()
-            .thenComparing(StockOrder::getRound)
-            .thenComparing(StockOrder::getPriorityInRound);
-
-    private final Comparator<StockOrder> sellOrdersComparator = Comparator.comparing(StockOrder::getPriceLimit)
-            .thenComparing(StockOrder::getRound)
-            .thenComparing(StockOrder::getPriorityInRound);
-
     public SESystem(InputInfo inputInfo) {
         roundCount = inputInfo.getRoundCount();
-        firstStockPrices = new HashMap<>(inputInfo.getStockPrices());
-        stockPrices = inputInfo.getStockPrices();
-        smaTracker = new SMATracker(this);
-
-        for (String stockID : stockPrices.keySet()) {
-            buyOrdersSheet.put(stockID, new ArrayList<>());
-            sellOrdersSheet.put(stockID, new ArrayList<>());
+        symbols = inputInfo.getSymbols();
+        stockPrices = symbols.toArray(inputInfo.getStockPrices());
+        firstStockPrices = stockPrices.clone();
+        smaTracker = new SMATracker(this, inputInfo.getSMAShortPeriod(), inputInfo.getSMALongPeriod());
+
+        orderBooks = new OrderBook[symbols.size()];
+        for (int i = 0; i < orderBooks.length; i++) {
+            orderBooks[i] = new OrderBook(symbols.getSymbol(i), i);
         }
+        dealCounts = new int[orderBooks.length];
+        metrics = new SimulationMetrics(symbols);
 
+        matchingMode = inputInfo.getMatchingMode();
+        pool = inputInfo.getThreadCount() > 1 ? new ForkJoinPool(inputInfo.getThreadCount()) : null;
+        parallelDecisions = inputInfo.isParallelDecisions();
+
+        // Everything random in the simulation comes from streams split from this one, in a fixed order
+        SplitMixRandom random = new SplitMixRandom(inputInfo.getSeed());
         investors = new ArrayList<>();
 
-        for (InvestorType type : inputInfo.getInvestorCounts().keySet()) {
-            int count = inputInfo.getInvestorCounts().get(type);
+        for (InvestorType type : InvestorType.values()) {
+            int count = inputInfo.getInvestorCounts().getOrDefault(type, 0);
             for (int i = 0; i < count; i++) {
+                Wallet wallet = inputInfo.getInvestorWallet(type, i);
                 try {
-                    investors.add(InvestorFactory.createInvestor(type, this, inputInfo.getWalletStocks(), inputInfo.getWalletCashCount()));
+                    if (wallet == null) {
+                        investors.add(InvestorFactory.createInvestor(type, this, inputInfo.getWalletStocks(),
+                                inputInfo.getWalletCashCount(), random.split()));
+                    } else {
+                        investors.add(InvestorFactory.createInvestor(type, this, wallet.getStocks(),
+                                wallet.getCash(), random.split()));
+                    }
                 } catch (InvestorFactory.UnhandledInvestorTypeException e) {
                     System.out.println(e.getMessage());
                     System.exit(1);
                 }
             }
         }
+        investorOrder = new IndexPermutation(investors.size(), random.split());
     }
 
     public void run() {
-        for (currentRound = 0; currentRound < roundCount; currentRound++) {
-            // Make sure we don't handle invalid orders
-            deleteOldOrders(currentRound);
-
-            getInvestorOrders(currentRound);
+        while (currentRound < roundCount) {
+            runRound();
+        }
+    }
 
-            buyOrdersSheet.values().forEach(arrayList -> arrayList.sort(buyOrdersComparator));
-            sellOrdersSheet.values().forEach(arrayList -> arrayList.sort(sellOrdersComparator));
+    /**
+     * Streams every trade closed from now on to the given sink. Sinks must be added before the first round.
+     */
+    public void addTradeSink(TradeSink sink) {
+        if (tradeBus == null) {
+            tradeBus = new TradeBus(symbols);
+        }
+        tradeBus.addSink(sink);
+    }
 
+    /**
+     * Reports the life of every order from now on to the given listener, e.g. a {@link event.TapeWriter}.
+     */
+    public void addOrderListener(OrderEventListener listener) {
+        orderListeners.add(listener);
+    }
 
-            // Go through each sell order
-            for (String stockID : stockPrices.keySet()) {
-                ArrayList<StockOrder> possibleBuyOrders = buyOrdersSheet.get(stockID);
+    /**
+     * Delivers the remaining trades, closes the trade sinks and order listeners and stops the worker threads.
+     * Everything is closed even if something fails to; the first failure is thrown, with the later ones suppressed.
+     */
+    @Override
+    public void close() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+        Exception failure = null;
+        if (tradeBus != null) {
+            failure = close(tradeBus::close, failure);
+        }
+        for (OrderEventListener listener : orderListeners) {
+            failure = close(listener::close, failure);
+        }
+        if (failure instanceof IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+    }
 
-                for (StockOrder buyOrder : possibleBuyOrders) {
-                    ArrayList<StockOrder> possibleSellOrders = sellOrdersSheet.get(stockID);
+    private static Exception close(AutoCloseable resource, Exception failure) {
+        try {
+            resource.close();
+        } catch (Exception e) {
+            if (failure == null) {
+                return e;
+            }
+            failure.addSuppressed(e);
+        }
+        return failure;
+    }
 
-                    if (!buyOrder.canBeClosedWith(possibleSellOrders)) {
-                        continue;
-                    }
-                    for (StockOrder sellOrder : possibleSellOrders) {
-                        if (buyOrder.isFullyExecuted()) {
-                            break;
-                        }
-
-                        Optional<Integer> closePrice = buyOrder.closeDealWith(sellOrder);
-                        if (closePrice.isPresent()) {
-                            stockPrices.put(buyOrder.getStockID(), closePrice.get());
-                            totalTransactionCount++;
-                        }
-                    }
+    /**
+     * Runs the current round and moves on to the next one. Doesn't look at the round count,
+     * so it can be used to drive the simulation round by round.
+     */
+    public void runRound() {
+        long roundStart = System.nanoTime();
+        // Make sure we don't handle invalid orders
+        deleteOldOrders(currentRound);
+        long phaseStart = metrics.recordPhase(Phase.EXPIRY, roundStart);
+
+        getInvestorOrders(currentRound);
+        phaseStart = metrics.recordPhase(Phase.ORDERS, phaseStart);
+
+        matchOrders();
+        phaseStart = metrics.recordPhase(Phase.MATCHING, phaseStart);
+
+        smaTracker.updateSMA();
+        metrics.recordPhase(Phase.SMA, phaseStart);
+        if (!orderListeners.isEmpty()) {
+            try {
+                for (OrderEventListener listener : orderListeners) {
+                    listener.onRoundEnd(currentRound);
                 }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            smaTracker.updateSMA();
         }
+        currentRound++;
+
+        if (checkpointPath != null && currentRound % checkpointInterval == 0) {
+            try {
+                saveCheckpoint(checkpointPath);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        metrics.roundEnded(orderBooks, roundStart);
+        if (metricsOut != null && currentRound % metricsInterval == 0) {
+            metricsOut.println(metrics.getSummary());
+        }
+    }
+
+    /**
+     * Saves a checkpoint to the given file after every {@code interval} rounds, replacing the previous one.
+     */
+    public void enableCheckpoints(Path path, int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Checkpoint interval must be positive: " + interval);
+        }
+        checkpointPath = path;
+        checkpointInterval = interval;
+    }
+
+    /**
+     * Prints a summary of the metrics to the given stream after every {@code interval} rounds.
+     */
+    public void enableMetricsDump(PrintStream out, int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("Metrics interval must be positive: " + interval);
+        }
+        metricsOut = out;
+        metricsInterval = interval;
     }
 
-    public void printResults() {
-        System.out.println("Investors: ");
+    /**
+     * Counters and latencies of the rounds run so far.
+     */
+    public SimulationMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Saves the whole state of the simulation between two rounds. A system restored from it with
+     * {@link #restoreCheckpoint(Path)} goes on exactly as this one would.
+     * Trade sinks and order listeners are not part of the state.
+     */
+    public void saveCheckpoint(Path path) throws IOException {
+        // Written next to the old checkpoint first, so a crash while saving never leaves a broken one behind
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            writeState(out);
+        }
+        Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Continues the simulation from a checkpoint. The system has to be new, created from the same stocks,
+     * and investor counts as the one that saved the checkpoint; its round count, matching mode and threads may differ.
+     * {@link #run()} then runs the rounds left after the checkpoint.
+     */
+    public void restoreCheckpoint(Path path) throws IOException {
+        if (currentRound != 0 || nextOrderId != 0) {
+            throw new IllegalStateException("Checkpoints can only be restored into a system that hasn't run yet");
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            readState(in);
+        }
+    }
+
+    private void writeState(DataOutput out) throws IOException {
+        out.writeInt(CHECKPOINT_MAGIC);
+        out.writeInt(CHECKPOINT_VERSION);
+        out.writeInt(currentRound);
+        out.writeInt(totalTransactionCount);
+        out.writeLong(nextOrderId);
+
+        out.writeInt(symbols.size());
+        for (String symbol : symbols.getSymbols()) {
+            out.writeUTF(symbol);
+        }
+        for (int i = 0; i < stockPrices.length; i++) {
+            out.writeInt(stockPrices[i]);
+            out.writeInt(firstStockPrices[i]);
+        }
+        smaTracker.writeState(out);
+
+        IdentityHashMap<Investor, Integer> investorIndices = new IdentityHashMap<>(investors.size());
+        out.writeInt(investors.size());
         for (Investor investor : investors) {
-            System.out.println(investor);
+            investorIndices.put(investor, investorIndices.size());
+            out.writeByte(investor.getType().ordinal());
+            investor.writeState(out);
         }
-        System.out.println("Stock Prices at start:"+ firstStockPrices);
-        System.out.println("Stock Prices at end:"+ stockPrices);
-        System.out.println("Starting net worth: " + investors.get(0).getStartNetWorth()); // There is at least 1 investor
+        investorOrder.writeState(out);
 
-        int randomCount = 0;
-        int betterRandomCount = 0;
-        int randomSum = 0;
+        // In the order they were accepted in, so restoring them fills books and expiry buckets the same way
+        List<StockOrder> orders = new ArrayList<>();
+        for (OrderBook orderBook : orderBooks) {
+            orderBook.getBuyOrders().forEach(orders::add);
+            orderBook.getSellOrders().forEach(orders::add);
+        }
+        orders.sort(Comparator.comparingInt(StockOrder::getRound).thenComparingInt(StockOrder::getPriorityInRound));
+        out.writeInt(orders.size());
+        for (StockOrder order : orders) {
+            out.writeInt(investorIndices.get(order.getInvestor()));
+            order.writeState(out);
+        }
+    }
 
-        int smaCount = 0;
-        int betterSMACount = 0;
-        int smaSum = 0;
+    private void readState(DataInput in) throws IOException {
+        if (in.readInt() != CHECKPOINT_MAGIC) {
+            throw new IOException("Not a checkpoint");
+        }
+        int version = in.readInt();
+        if (version != CHECKPOINT_VERSION) {
+            throw new IOException("Unsupported checkpoint version: " + version);
+        }
+        currentRound = in.readInt();
+        totalTransactionCount = in.readInt();
+        nextOrderId = in.readLong();
 
-        int sumNetWorth = 0;
+        int stockCount = in.readInt();
+        if (stockCount != symbols.size()) {
+            throw new IOException("Checkpoint has " + stockCount + " stocks, expected " + symbols.size());
+        }
+        for (int i = 0; i < stockCount; i++) {
+            String symbol = in.readUTF();
+            if (!symbol.equals(symbols.getSymbol(i))) {
+                throw new IOException("Checkpoint has stock " + symbol + " where " + symbols.getSymbol(i) + " is");
+            }
+        }
+        for (int i = 0; i < stockCount; i++) {
+            stockPrices[i] = in.readInt();
+            firstStockPrices[i] = in.readInt();
+        }
+        smaTracker.readState(in);
 
-        // I know, it's hacky, but it's just for the sake of statistics
+        int investorCount = in.readInt();
+        if (investorCount != investors.size()) {
+            throw new IOException("Checkpoint has " + investorCount + " investors, expected " + investors.size());
+        }
         for (Investor investor : investors) {
-            int netWorth = investor.calculateNetWorth();
-            sumNetWorth += netWorth;
-            if (investor instanceof RandomInvestor) {
-                randomSum += netWorth;
-                randomCount++;
-                if (investor.calculateNetWorth() > investors.get(0).getStartNetWorth()) {
-                    betterRandomCount++;
-                }
-            } else if (investor instanceof SMAInvestor) {
-                smaSum += netWorth;
-                smaCount++;
-                if (investor.calculateNetWorth() > investors.get(0).getStartNetWorth()) {
-                    betterSMACount++;
+            InvestorType type = InvestorType.values()[in.readByte()];
+            if (type != investor.getType()) {
+                throw new IOException("Checkpoint has a " + type + " investor where a " + investor.getType() + " one is");
+            }
+            investor.readState(in);
+        }
+        investorOrder.readState(in);
+
+        int orderCount = in.readInt();
+        for (int i = 0; i < orderCount; i++) {
+            Investor investor = investors.get(in.readInt());
+            StockOrder order = StockOrder.readState(in, investor, symbols);
+            orderBooks[order.getStockIndex()].add(order);
+            expiryIndex.add(order);
+            orderIndex.add(order);
+        }
+    }
+
+    private void matchOrders() {
+        // Books only share the investors, and matching only touches the holdings of the book's own stock and
+        // the cash reserved by its buy orders. What deals change beyond that is settled afterwards, one book
+        // after another, so both modes give the same results.
+        if (matchingMode == MatchingMode.PARALLEL) {
+            ParallelLoop.forEach(pool, orderBooks.length, 1, i -> dealCounts[i] = orderBooks[i].match());
+        } else {
+            for (int i = 0; i < orderBooks.length; i++) {
+                dealCounts[i] = orderBooks[i].match();
+            }
+        }
+        for (OrderBook orderBook : orderBooks) {
+            orderBook.settle();
+        }
+
+        int fillCount = 0;
+        int fullExecutionRejectionCount = 0;
+        for (int i = 0; i < orderBooks.length; i++) {
+            if (dealCounts[i] > 0) {
+                stockPrices[i] = orderBooks[i].getLastDealPrice();
+                fillCount += dealCounts[i];
+            }
+            fullExecutionRejectionCount += orderBooks[i].getFullExecutionRejectionCount();
+        }
+        totalTransactionCount += fillCount;
+        metrics.ordersMatched(fillCount, fullExecutionRejectionCount);
+
+        if (tradeBus != null) {
+            publishTrades();
+        }
+        if (!orderListeners.isEmpty()) {
+            reportFills();
+        }
+        for (OrderBook orderBook : orderBooks) {
+            forgetFilledOrders(orderBook.getFillLog());
+        }
+    }
+
+    // Once everyone was told about the fills, the filled orders can be reused
+    private void forgetFilledOrders(FillLog fillLog) {
+        for (int i = 0; i < fillLog.size(); i++) {
+            if (fillLog.isBuyOrderCompleted(i)) {
+                forget(fillLog.getBuyOrder(i));
+            }
+            if (fillLog.isSellOrderCompleted(i)) {
+                forget(fillLog.getSellOrder(i));
+            }
+        }
+    }
+
+    private void forget(StockOrder order) {
+        orderIndex.remove(order.getId());
+        order.recycle();
+    }
+
+    private void reportFills() {
+        for (OrderBook orderBook : orderBooks) {
+            FillLog fillLog = orderBook.getFillLog();
+            for (int i = 0; i < fillLog.size(); i++) {
+                StockOrder buyOrder = fillLog.getBuyOrder(i);
+                StockOrder sellOrder = fillLog.getSellOrder(i);
+                boolean buyAggressor = !buyOrder.isPlacedBefore(sellOrder);
+                for (OrderEventListener listener : orderListeners) {
+                    listener.onFill(currentRound, buyOrder, sellOrder, fillLog.getPrice(i), fillLog.getQuantity(i),
+                            buyAggressor);
+                    if (fillLog.isBuyOrderCompleted(i)) {
+                        listener.onFilled(currentRound, buyOrder);
+                    }
+                    if (fillLog.isSellOrderCompleted(i)) {
+                        listener.onFilled(currentRound, sellOrder);
+                    }
                 }
             }
+        }
+    }
+
+    private void publishTrades() {
+        for (OrderBook orderBook : orderBooks) {
+            FillLog fillLog = orderBook.getFillLog();
+            for (int i = 0; i < fillLog.size(); i++) {
+                StockOrder buyOrder = fillLog.getBuyOrder(i);
+                StockOrder sellOrder = fillLog.getSellOrder(i);
+                tradeBus.publish(currentRound, orderBook.getStockIndex(), fillLog.getPrice(i), fillLog.getQuantity(i),
+                        buyOrder.getInvestor().getId(), sellOrder.getInvestor().getId(),
+                        buyOrder.isPlacedBefore(sellOrder) ? OrderType.SELL : OrderType.BUY);
+            }
+        }
+        tradeBus.flush();
+    }
 
+    /**
+     * Net worth statistics of all investors as they are now.
+     */
+    public ResultsReport createReport() {
+        return ResultsReport.of(investors, pool, currentRound, totalTransactionCount,
+                symbols.toMap(firstStockPrices), symbols.toMap(stockPrices));
+    }
+
+    public void printResults(ResultsReport report) {
+        if (investors.size() <= PRINTED_INVESTOR_LIMIT) {
+            System.out.println("Investors: ");
+            for (Investor investor : investors) {
+                System.out.println(investor);
+            }
+        } else {
+            System.out.println("Investors: " + investors.size() + " (too many to list)");
+        }
+        System.out.println("Stock Prices at start:" + report.getStartPrices());
+        System.out.println("Stock Prices at end:" + report.getEndPrices());
+        for (StrategyStats stats : report.getByType()) {
+            System.out.println(stats);
         }
-        System.out.println("Average net worth now: " + sumNetWorth / investors.size());
-        System.out.println("Average net worth of random investors: " + randomSum / randomCount);
-        System.out.println("Average net worth of SMA investors: " + smaSum / smaCount);
-        double betterFactor = (double) (smaSum * randomCount) /(smaCount * randomSum);
-        System.out.println("How many times are SMA investors better compared to random investors: " + betterFactor);
-        System.out.println("Percent of random investors of which net worth increased: " + betterRandomCount * 100 / randomCount + "%");
-        System.out.println("Percent of SMA investors of which net worth increased: " + betterSMACount * 100 / smaCount + "%");
-        System.out.println("Total transactions: " + totalTransactionCount);
+        System.out.println(report.getOverall());
+        System.out.println("Total transactions: " + report.getTransactionCount());
+    }
+
+    /**
+     * Hands out investor ids, every investor of this system gets its own.
+     */
+    public int nextInvestorId() {
+        return nextInvestorId++;
+    }
+
+    public int getTotalTransactionCount() {
+        return totalTransactionCount;
     }
 
     public int getCurrentRound() {
@@ -145,64 +490,179 @@ public class SESystem {
     }
 
     public int getStockPrice(String stockID) {
-        return stockPrices.get(stockID);
+        return stockPrices[symbols.indexOf(stockID)];
+    }
+
+    public int getStockPrice(int stockIndex) {
+        return stockPrices[stockIndex];
+    }
+
+    public Map<String, Integer> getStockPrices() {
+        return symbols.toMap(stockPrices);
     }
 
     public String[] getStockIDs() {
-        return stockPrices.keySet().toArray(new String[0]);
+        return symbols.getSymbols();
+    }
+
+    public List<Investor> getInvestors() {
+        return Collections.unmodifiableList(investors);
+    }
+
+    public SymbolRegistry getSymbols() {
+        return symbols;
     }
 
     public double getSMASignalStrength(String stockID) {
-        return smaTracker.getSignalStrength(stockID);
+        return smaTracker.getSignalStrength(symbols.indexOf(stockID));
+    }
+
+    public double getSMASignalStrength(int stockIndex) {
+        return smaTracker.getSignalStrength(stockIndex);
     }
 
     private void deleteOldOrders(int round) {
-        buyOrdersSheet.values().forEach(array -> array.removeIf(order -> order.isOverdue(round) || order.isFullyExecuted()));
-        sellOrdersSheet.values().forEach(array -> array.removeIf(order -> order.isOverdue(round) || order.isFullyExecuted()));
+        // Fully executed orders leave their book as soon as they are filled, only overdue ones are left
+        expiryIndex.expire(round, order -> {
+            orderBooks[order.getStockIndex()].remove(order);
+            orderIndex.remove(order.getId());
+            for (OrderEventListener listener : orderListeners) {
+                listener.onExpired(round, order);
+            }
+            order.release();
+            order.recycle();
+        });
     }
 
     private void getInvestorOrders(int round) {
-        IndexPermutation indexPermutation = new IndexPermutation(investors.size());
+        if (parallelDecisions) {
+            // While deciding investors only read prices, SMA signals and their own wallets, and none of these
+            // change until every investor has decided, so all of them see the same market as in sequential order
+            ParallelLoop.forEach(pool, investors.size(), DECISION_GRAIN, i -> investors.get(i).decide());
+        }
+
+        // Orders are still accepted, and get their priority, in the shuffled order
+        investorOrder.reset();
         int priority = 0;
-        while (indexPermutation.hasNext()) {
-            int idx = indexPermutation.getNext();
-            Optional<StockOrder> stockOrder = investors.get(idx).decideAndOrder();
+        while (investorOrder.hasNext()) {
+            Investor investor = investors.get(investorOrder.getNext());
+            OrderBuffer decisions = parallelDecisions ? investor.getDecisions() : investor.decide();
+            priority = takeDecisions(round, investor, decisions, priority);
+        }
+    }
 
-            if (stockOrder.isEmpty() || !isOrderValid(stockOrder.get())) {
-                continue;
-            }
+    /**
+     * Lets the investor decide and takes its decisions as if it was its turn in the current round,
+     * for tests driving investors of their own. Returns the priority of the next order.
+     */
+    int takeDecisions(Investor investor, int priority) {
+        return takeDecisions(currentRound, investor, investor.decide(), priority);
+    }
 
-            StockOrder order = stockOrder.get();
-            order.setRound(round);
-            order.setPriorityInRound(priority++);
+    private int takeDecisions(int round, Investor investor, OrderBuffer decisions, int priority) {
+        if (decisions.isEmpty()) {
+            return priority;
+        }
+
+        // Cancels come first, so the new orders can use what they release
+        for (int i = 0; i < decisions.getCancelCount(); i++) {
+            cancelOrder(round, investor, decisions.getCancel(i));
+        }
+        // Each order is checked against what the ones before it left in the wallet
+        for (int i = 0; i < decisions.getOrderCount(); i++) {
+            StockOrder order = decisions.getOrder(i);
+            if (order.getInvestor() != investor) {
+                throw new IllegalStateException("Investor " + investor.getId() + " placed an order of investor "
+                        + order.getInvestor().getId());
+            }
+            if (acceptOrder(round, order, priority)) {
+                priority++;
+            }
+        }
+        decisions.clear();
+        return priority;
+    }
 
-            if (order.getType() == OrderType.BUY) {
-                buyOrdersSheet.get(order.getStockID()).add(order);
-            } else {
-                sellOrdersSheet.get(order.getStockID()).add(order);
+    private boolean acceptOrder(int round, StockOrder order, int priority) {
+        RejectionReason rejectionReason = checkOrder(order);
+        if (rejectionReason != null) {
+            metrics.orderRejected(rejectionReason);
+            for (OrderEventListener listener : orderListeners) {
+                listener.onRejected(round, order, rejectionReason);
             }
+            order.recycle();
+            return false;
         }
+
+        order.setRound(round);
+        order.setPriorityInRound(priority);
+        order.setId(nextOrderId++);
+
+        order.reserve();
+        orderBooks[order.getStockIndex()].add(order);
+        expiryIndex.add(order);
+        orderIndex.add(order);
+        metrics.orderAccepted();
+        order.getInvestor().onOrderAccepted(order);
+        for (OrderEventListener listener : orderListeners) {
+            listener.onAccepted(round, order);
+        }
+        return true;
     }
 
-    private boolean isOrderValid(StockOrder stockOrder) {
+    /**
+     * Takes a resting order of the investor out of its book and releases what it reserved.
+     * Ids of orders that already left the book, or belong to someone else, are ignored.
+     */
+    private void cancelOrder(int round, Investor investor, long orderId) {
+        StockOrder order = orderIndex.get(orderId);
+        if (order == null || order.getInvestor() != investor) {
+            metrics.cancelMissed();
+            return;
+        }
+        orderIndex.remove(orderId);
+        orderBooks[order.getStockIndex()].remove(order);
+        order.release();
+        metrics.orderCancelled();
+        for (OrderEventListener listener : orderListeners) {
+            listener.onCancelled(round, order);
+        }
+        order.recycle();
+    }
+
+    /**
+     * Returns why the order can't be accepted, or null if it can.
+     */
+    private RejectionReason checkOrder(StockOrder stockOrder) {
         int priceLimit = stockOrder.getPriceLimit();
+        int stockIndex = stockOrder.getStockIndex();
+
+        // the stock has to be traded on this exchange; the ID decides, the index is only trusted if it matches
+        if (stockIndex < 0 || stockIndex >= symbols.size()
+                || !symbols.getSymbol(stockIndex).equals(stockOrder.getStockID())) {
+            stockIndex = symbols.indexOf(stockOrder.getStockID());
+            if (stockIndex == SymbolRegistry.UNKNOWN) {
+                return RejectionReason.UNKNOWN_STOCK;
+            }
+            stockOrder.setStockIndex(stockIndex);
+        }
 
         // price limit should be within 10 of the current price
-        int stockPrice = stockPrices.get(stockOrder.getStockID());
+        int stockPrice = stockPrices[stockIndex];
         if (Math.abs(stockPrice - priceLimit) > 10) {
-            return false;
+            return RejectionReason.PRICE_OUT_OF_RANGE;
         }
 
-        // investor should have enough cash or stock to place the order
+        // investor should have enough cash or stock to place the order, not counting what their resting orders reserved
         if (stockOrder.getType() == OrderType.BUY
                 && stockOrder.getQuantity() * priceLimit > stockOrder.getInvestor().getCash()) {
-            return false;
+            return RejectionReason.NOT_ENOUGH_CASH;
         }
 
         if (stockOrder.getType() == OrderType.SELL &&
-                stockOrder.getQuantity() > stockOrder.getInvestor().getStockCount(stockOrder.getStockID())) {
-            return false;
+                stockOrder.getQuantity() > stockOrder.getInvestor().getStockCount(stockIndex)) {
+            return RejectionReason.NOT_ENOUGH_STOCKS;
         }
-        return true;
+        return null;
     }
 }
@@ -1,10 +1,36 @@
 package system;
 
+import event.OrderEventListener;
+import event.TradeBatch;
+import event.TradeSink;
+import investor.Investor;
+import investor.InvestorType;
 import io.InputInfo;
 import io.InputReader;
+import metrics.Phase;
+import metrics.SimulationMetrics;
+import order.DueType;
+import order.OrderBuffer;
+import order.OrderInfo;
+import order.OrderType;
+import order.RejectionReason;
+import order.StockOrder;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import utils.SplitMixRandom;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -48,4 +74,438 @@ class SESystemTest {
             assertTrue(system.getStockPrice(stockID) > 50);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    void runParallel() {
+        String[] args = {"system/testfiles/testMoodle.txt", "500"};
+        InputInfo info;
+        try {
+            info = InputReader.readInput(args);
+        } catch (InputReader.InputException e) {
+            fail("Should not throw exception");
+            // If this throws, add "src/" to the path
+            return;
+        }
+        info.setMatchingMode(MatchingMode.PARALLEL);
+        info.setParallelDecisions(true);
+        info.setThreadCount(4);
+
+        SESystem system = new SESystem(info);
+        int stockCount = system.getSymbols().size();
+        long startCash = 0;
+        long[] startStocks = new long[stockCount];
+        for (Investor investor : system.getInvestors()) {
+            startCash += investor.getCash();
+            for (int i = 0; i < stockCount; i++) {
+                startStocks[i] += investor.getStockCount(i);
+            }
+        }
+
+        system.run();
+        assertEquals(system.getCurrentRound(), 500);
+
+        // Deals only move cash and stocks between investors
+        long endCash = 0;
+        long[] endStocks = new long[stockCount];
+        for (Investor investor : system.getInvestors()) {
+            assertTrue(investor.getCash() >= 0);
+            assertTrue(investor.getReservedCash() >= 0);
+            endCash += investor.getCash() + investor.getReservedCash();
+            for (int i = 0; i < stockCount; i++) {
+                assertTrue(investor.getStockCount(i) >= 0);
+                assertTrue(investor.getReservedStockCount(i) >= 0);
+                endStocks[i] += investor.getStockCount(i) + investor.getReservedStockCount(i);
+            }
+        }
+        assertEquals(startCash, endCash);
+        assertArrayEquals(startStocks, endStocks);
+    }
+
+    private static SESystem runSeeded(MatchingMode matchingMode, int threadCount, boolean parallelDecisions) {
+        String[] args = {"system/testfiles/testMoodle.txt", "300"};
+        InputInfo info;
+        try {
+            info = InputReader.readInput(args);
+        } catch (InputReader.InputException e) {
+            fail("Should not throw exception");
+            return null;
+        }
+        info.setSeed(2024);
+        info.setMatchingMode(matchingMode);
+        info.setThreadCount(threadCount);
+        info.setParallelDecisions(parallelDecisions);
+        SESystem system = new SESystem(info);
+        system.run();
+        return system;
+    }
+
+    private static List<Integer> stateOf(SESystem system) {
+        List<Integer> state = new ArrayList<>();
+        for (int i = 0; i < system.getSymbols().size(); i++) {
+            state.add(system.getStockPrice(i));
+        }
+        for (Investor investor : system.getInvestors()) {
+            state.add(investor.getCash() + investor.getReservedCash());
+            for (int i = 0; i < system.getSymbols().size(); i++) {
+                state.add(investor.getStockCount(i) + investor.getReservedStockCount(i));
+            }
+        }
+        return state;
+    }
+
+    @Test
+    void runSeeded() {
+        List<Integer> sequential = stateOf(runSeeded(MatchingMode.SEQUENTIAL, 1, false));
+        assertEquals(sequential, stateOf(runSeeded(MatchingMode.SEQUENTIAL, 1, false)));
+        // Deciding in parallel doesn't change what investors decide
+        assertEquals(sequential, stateOf(runSeeded(MatchingMode.SEQUENTIAL, 4, true)));
+
+        // Parallel matching gives the same results for any number of threads, the same as sequential matching
+        assertEquals(sequential, stateOf(runSeeded(MatchingMode.PARALLEL, 1, false)));
+        assertEquals(sequential, stateOf(runSeeded(MatchingMode.PARALLEL, 3, true)));
+        assertEquals(sequential, stateOf(runSeeded(MatchingMode.PARALLEL, 8, true)));
+    }
+
+    @Test
+    void checkpoint(@TempDir Path dir) throws IOException, InputReader.InputException {
+        for (MatchingMode matchingMode : MatchingMode.values()) {
+            InputInfo info = InputReader.readInput(new String[]{"system/testfiles/testMoodle.txt", "150"});
+            info.setSeed(77);
+            info.setMatchingMode(matchingMode);
+            info.setThreadCount(2);
+            Path checkpoint = dir.resolve("checkpoint-" + matchingMode); // saved every 50 rounds
+            Path uninterrupted = dir.resolve("uninterrupted-" + matchingMode);
+            Path resumed = dir.resolve("resumed-" + matchingMode);
+
+            SESystem system = new SESystem(info);
+            system.enableCheckpoints(checkpoint, 50);
+            system.run();
+            Path halfway = dir.resolve("halfway-" + matchingMode);
+            Files.copy(checkpoint, halfway);
+            // Keeps going past its round count
+            for (int i = 0; i < 150; i++) {
+                system.runRound();
+            }
+            system.saveCheckpoint(uninterrupted);
+
+            // Everything random has to come from the checkpoint, so the seed doesn't matter
+            info.setSeed(78);
+            info.setRoundCount(300);
+            SESystem resumedSystem = new SESystem(info);
+            resumedSystem.restoreCheckpoint(halfway);
+            assertEquals(150, resumedSystem.getCurrentRound());
+            resumedSystem.run();
+            resumedSystem.saveCheckpoint(resumed);
+
+            assertEquals(stateOf(system), stateOf(resumedSystem));
+            assertArrayEquals(Files.readAllBytes(uninterrupted), Files.readAllBytes(resumed));
+        }
+
+        InputInfo info = InputReader.readInput(new String[]{"system/testfiles/testMoodle.txt", "10"});
+        SESystem system = new SESystem(info);
+        system.run();
+        system.saveCheckpoint(dir.resolve("sequential"));
+        // The matching mode isn't part of the state
+        info.setMatchingMode(MatchingMode.PARALLEL);
+        info.setThreadCount(2);
+        SESystem parallelSystem = new SESystem(info);
+        parallelSystem.restoreCheckpoint(dir.resolve("sequential"));
+        for (int i = 0; i < 20; i++) {
+            system.runRound();
+            parallelSystem.runRound();
+        }
+        assertEquals(stateOf(system), stateOf(parallelSystem));
+        assertThrows(IllegalStateException.class, () -> system.restoreCheckpoint(dir.resolve("sequential")));
+    }
+
+    @Test
+    void metrics() throws InputReader.InputException {
+        SESystem system = new SESystem(InputReader.readInput(new String[]{"system/testfiles/testMoodle.txt", "300"}));
+        system.run();
+        SimulationMetrics metrics = system.getMetrics();
+        assertEquals(300, metrics.getRoundsRun());
+        for (Phase phase : Phase.values()) {
+            assertEquals(300, metrics.getPhase(phase).getCount());
+        }
+        assertEquals(system.getTotalTransactionCount(), metrics.getFills());
+        assertTrue(metrics.getAcceptedOrders() > 0);
+        assertEquals(metrics.getRejectedOrders(),
+                metrics.getRejectedOrdersByReason().values().stream().mapToLong(Long::longValue).sum());
+        assertEquals(Arrays.asList(system.getStockIDs()), new ArrayList<>(metrics.getBuyDepth().keySet()));
+
+        metrics.reset();
+        system.runRound();
+        assertEquals(0, metrics.getRoundsRun());
+        assertEquals(0, metrics.getAcceptedOrders());
+    }
+
+    private static class ClosingListener implements OrderEventListener {
+        private final boolean fails;
+        private boolean closed = false;
+
+        ClosingListener(boolean fails) {
+            this.fails = fails;
+        }
+
+        @Override
+        public void onAccepted(int round, StockOrder order) {
+        }
+
+        @Override
+        public void onRejected(int round, StockOrder order, RejectionReason reason) {
+        }
+
+        @Override
+        public void onExpired(int round, StockOrder order) {
+        }
+
+        @Override
+        public void onCancelled(int round, StockOrder order) {
+        }
+
+        @Override
+        public void onFill(int round, StockOrder buyOrder, StockOrder sellOrder, int price, int quantity,
+                           boolean buyAggressor) {
+        }
+
+        @Override
+        public void onFilled(int round, StockOrder order) {
+        }
+
+        @Override
+        public void close() throws IOException {
+            closed = true;
+            if (fails) {
+                throw new IOException("listener");
+            }
+        }
+    }
+
+    @Test
+    void closeAfterFailure() throws InputReader.InputException {
+        SESystem system = new SESystem(InputReader.readInput(new String[]{"system/testfiles/testMoodle.txt", "20"}));
+        system.addTradeSink(new TradeSink() {
+            @Override
+            public void onTrades(TradeBatch trades) {
+            }
+
+            @Override
+            public void close() throws IOException {
+                throw new IOException("sink");
+            }
+        });
+        ClosingListener failing = new ClosingListener(true);
+        ClosingListener last = new ClosingListener(false);
+        system.addOrderListener(failing);
+        system.addOrderListener(last);
+        system.run();
+
+        // The sink fails first, but every listener still gets closed
+        UncheckedIOException e = assertThrows(UncheckedIOException.class, system::close);
+        assertEquals("sink", e.getCause().getMessage());
+        assertEquals(1, e.getCause().getSuppressed().length);
+        assertEquals("listener", e.getCause().getSuppressed()[0].getMessage());
+        assertTrue(failing.closed);
+        assertTrue(last.closed);
+    }
+
+    /**
+     * Decides whatever the test scripted for its next decision, and remembers the ids of its accepted orders.
+     */
+    private static class ScriptedInvestor extends Investor {
+        private Consumer<OrderBuffer> nextDecision = buffer -> {
+        };
+        private final List<Long> acceptedIds = new ArrayList<>();
+
+        ScriptedInvestor(SESystem system, int cash, Map<String, Integer> stocks) {
+            super(system, stocks, cash, new SplitMixRandom(1));
+        }
+
+        void script(Consumer<OrderBuffer> decision) {
+            nextDecision = decision;
+        }
+
+        OrderInfo info(OrderType type, String stockID, int quantity, int priceLimit) {
+            OrderInfo orderInfo = newOrderInfo();
+            orderInfo.setType(type);
+            orderInfo.setDueType(DueType.PERSISTENT);
+            setStock(orderInfo, system.getSymbols().indexOf(stockID));
+            orderInfo.setQuantity(quantity);
+            orderInfo.setPriceLimit(priceLimit);
+            orderInfo.setInvestor(this);
+            return orderInfo;
+        }
+
+        StockOrder order(OrderType type, String stockID, int quantity, int priceLimit) {
+            return order(info(type, stockID, quantity, priceLimit));
+        }
+
+        StockOrder order(OrderInfo orderInfo) {
+            return newOrder(orderInfo);
+        }
+
+        void cancelOrder(long orderId) {
+            cancel(orderId);
+        }
+
+        Optional<StockOrder> replaceOrder(long orderId, OrderInfo orderInfo) {
+            return replace(orderId, orderInfo);
+        }
+
+        @Override
+        protected void decideOrders(OrderBuffer buffer) {
+            Consumer<OrderBuffer> decision = nextDecision;
+            nextDecision = b -> {
+            };
+            decision.accept(buffer);
+        }
+
+        @Override
+        public Optional<StockOrder> decideAndOrder() {
+            return Optional.empty();
+        }
+
+        @Override
+        public void onOrderAccepted(StockOrder order) {
+            acceptedIds.add(order.getId());
+        }
+
+        @Override
+        public InvestorType getType() {
+            return InvestorType.RANDOM;
+        }
+
+        @Override
+        protected void writeStrategyState(DataOutput out) {
+        }
+
+        @Override
+        protected void readStrategyState(DataInput in) {
+        }
+    }
+
+    private static SESystem fourStocks() throws InputReader.InputException {
+        // A, B, C and D, all at 100
+        return new SESystem(InputReader.readInput(new String[]{"system/testfiles/test1.txt", "10"}));
+    }
+
+    @Test
+    void severalOrders() throws InputReader.InputException {
+        SESystem system = fourStocks();
+        ScriptedInvestor investor = new ScriptedInvestor(system, 1000, Map.of());
+        StockOrder[] orders = new StockOrder[2];
+        investor.script(buffer -> {
+            // Each is affordable on its own, not both together
+            orders[0] = investor.order(OrderType.BUY, "A", 6, 100);
+            buffer.add(orders[0]);
+            orders[1] = investor.order(OrderType.BUY, "B", 5, 100);
+            buffer.add(orders[1]);
+        });
+        assertEquals(1, system.takeDecisions(investor, 0));
+
+        assertTrue(orders[0].isResting());
+        assertEquals(List.of(orders[0].getId()), investor.acceptedIds);
+        assertEquals(600, investor.getReservedCash());
+        assertEquals(400, investor.getCash());
+        assertEquals(1, system.getMetrics().getRejectedOrders(RejectionReason.NOT_ENOUGH_CASH));
+        // The buffer is emptied for the next round
+        assertTrue(investor.getDecisions().isEmpty());
+        assertEquals(1, system.takeDecisions(investor, 1));
+        assertEquals(1, investor.acceptedIds.size());
+    }
+
+    @Test
+    void cancel() throws InputReader.InputException {
+        SESystem system = fourStocks();
+        ScriptedInvestor investor = new ScriptedInvestor(system, 1000, Map.of());
+        ScriptedInvestor other = new ScriptedInvestor(system, 1000, Map.of("A", 10));
+        StockOrder[] orders = new StockOrder[2];
+        investor.script(buffer -> {
+            orders[0] = investor.order(OrderType.BUY, "A", 5, 100);
+            buffer.add(orders[0]);
+            orders[1] = investor.order(OrderType.BUY, "A", 2, 100);
+            buffer.add(orders[1]);
+        });
+        system.takeDecisions(investor, 0);
+        long id = investor.acceptedIds.get(0);
+        assertEquals(700, investor.getReservedCash());
+
+        // Someone else's order and unknown ids are ignored
+        other.script(buffer -> other.cancelOrder(id));
+        system.takeDecisions(other, 2);
+        investor.script(buffer -> investor.cancelOrder(12345));
+        system.takeDecisions(investor, 2);
+        assertTrue(orders[0].isResting());
+        assertEquals(700, investor.getReservedCash());
+        assertEquals(2, system.getMetrics().getMissedCancels());
+
+        // The order leaves its level, the other order of the level stays, and the cash is released
+        investor.script(buffer -> investor.cancelOrder(id));
+        system.takeDecisions(investor, 2);
+        assertFalse(orders[0].isResting());
+        assertTrue(orders[1].isResting());
+        assertEquals(200, investor.getReservedCash());
+        assertEquals(800, investor.getCash());
+        assertEquals(1, system.getMetrics().getCancelledOrders());
+
+        investor.script(buffer -> investor.cancelOrder(id));
+        system.takeDecisions(investor, 2);
+        assertEquals(3, system.getMetrics().getMissedCancels());
+    }
+
+    @Test
+    void replace() throws InputReader.InputException {
+        SESystem system = fourStocks();
+        ScriptedInvestor investor = new ScriptedInvestor(system, 1000, Map.of());
+        investor.script(buffer -> buffer.add(investor.order(OrderType.BUY, "A", 8, 100)));
+        system.takeDecisions(investor, 0);
+        long id = investor.acceptedIds.get(0);
+
+        // An invalid replacement cancels nothing
+        investor.script(buffer -> assertTrue(investor.replaceOrder(id, investor.info(OrderType.BUY, "B", 0, 100))
+                .isEmpty()));
+        system.takeDecisions(investor, 1);
+        assertEquals(800, investor.getReservedCash());
+        assertTrue(investor.getDecisions().isEmpty());
+
+        // The replacement can use what the replaced order reserved
+        investor.script(buffer -> investor.replaceOrder(id, investor.info(OrderType.BUY, "B", 9, 100))
+                .ifPresent(buffer::add));
+        system.takeDecisions(investor, 1);
+        assertEquals(2, investor.acceptedIds.size());
+        assertEquals(900, investor.getReservedCash());
+        assertEquals(1, system.getMetrics().getCancelledOrders());
+        assertEquals(0, system.getMetrics().getRejectedOrders());
+    }
+
+    @Test
+    void stockOfOrder() throws InputReader.InputException {
+        SESystem system = fourStocks();
+        ScriptedInvestor investor = new ScriptedInvestor(system, 1000, Map.of());
+        StockOrder[] orders = new StockOrder[3];
+        investor.script(buffer -> {
+            // Only the ID, as orders were made before there were indices
+            OrderInfo idOnly = investor.info(OrderType.BUY, "C", 1, 100);
+            idOnly.setStockIndex(-1);
+            orders[0] = investor.order(idOnly);
+            buffer.add(orders[0]);
+            // An index of another stock
+            OrderInfo mismatched = investor.info(OrderType.BUY, "B", 1, 100);
+            mismatched.setStockIndex(0);
+            orders[1] = investor.order(mismatched);
+            buffer.add(orders[1]);
+            OrderInfo unknown = investor.info(OrderType.BUY, "A", 1, 100);
+            unknown.setStockID("XYZ");
+            orders[2] = investor.order(unknown);
+            buffer.add(orders[2]);
+        });
+        system.takeDecisions(investor, 0);
+
+        assertEquals(2, investor.acceptedIds.size());
+        assertTrue(orders[0].isResting());
+        assertEquals(system.getSymbols().indexOf("C"), orders[0].getStockIndex());
+        assertTrue(orders[1].isResting());
+        assertEquals(system.getSymbols().indexOf("B"), orders[1].getStockIndex());
+        assertEquals(1, system.getMetrics().getRejectedOrders(RejectionReason.UNKNOWN_STOCK));
+    }
+}
@@ -1,22 +1,74 @@
 package utils;
 
-import java.util.ArrayList;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Random;
+import java.util.random.RandomGenerator;
 
+/**
+ * Random permutation of the indices 0..n-1, produced one index at a time.
+ * Shuffling is done lazily with Fisher-Yates, one swap per {@link #getNext()}, so every call is O(1).
+ * The same instance can be reused for any number of permutations through {@link #reset()}.
+ */
 public class IndexPermutation {
-    ArrayList<Integer> idxList;
+    private final int[] indices;
+    private final RandomGenerator random;
+    private int position = 0;
+
     public IndexPermutation(int n) {
-        idxList = new ArrayList<>();
+        this(n, new Random());
+    }
+
+    public IndexPermutation(int n, RandomGenerator random) {
+        this.random = random;
+        indices = new int[n];
         for (int i = 0; i < n; i++) {
-            idxList.add(i);
+            indices[i] = i;
         }
-        java.util.Collections.shuffle(idxList);
+    }
+
+    /**
+     * Starts a new permutation. Indices returned from now on are independent from the previous ones.
+     */
+    public void reset() {
+        position = 0;
     }
 
     public int getNext() {
-        return idxList.remove(0);
+        // Any arrangement left by a previous permutation is as good a starting point as the identity
+        int chosen = position + random.nextInt(indices.length - position);
+        int index = indices[chosen];
+        indices[chosen] = indices[position];
+        indices[position++] = index;
+        return index;
     }
 
     public boolean hasNext() {
-        return !idxList.isEmpty();
+        return position < indices.length;
+    }
+
+    /**
+     * Saves the arrangement and position, along with the state of the generator, which has to be a SplitMixRandom.
+     */
+    public void writeState(DataOutput out) throws IOException {
+        SplitMixRandom.saveable(random).writeState(out);
+        out.writeInt(indices.length);
+        out.writeInt(position);
+        for (int index : indices) {
+            out.writeInt(index);
+        }
+    }
+
+    public void readState(DataInput in) throws IOException {
+        SplitMixRandom.saveable(random).readState(in);
+        int n = in.readInt();
+        if (n != indices.length) {
+            throw new IOException("Saved permutation of " + n + " indices, expected " + indices.length);
+        }
+        position = in.readInt();
+        for (int i = 0; i < n; i++) {
+            indices[i] = in.readInt();
+        }
     }
 }
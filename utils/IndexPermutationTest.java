@@ -2,6 +2,8 @@ package utils;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.Random;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 class IndexPermutationTest {
@@ -23,4 +25,28 @@ class IndexPermutationTest {
         indexPermutation.getNext();
         assertFalse(indexPermutation.hasNext());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getNext() {
+        IndexPermutation indexPermutation = new IndexPermutation(100, new Random(42));
+        for (int round = 0; round < 3; round++) {
+            boolean[] seen = new boolean[100];
+            while (indexPermutation.hasNext()) {
+                int idx = indexPermutation.getNext();
+                assertFalse(seen[idx]);
+                seen[idx] = true;
+            }
+            for (boolean wasSeen : seen) {
+                assertTrue(wasSeen);
+            }
+            indexPermutation.reset();
+        }
+
+        // The same seed gives the same permutations
+        IndexPermutation first = new IndexPermutation(50, new Random(7));
+        IndexPermutation second = new IndexPermutation(50, new Random(7));
+        while (first.hasNext()) {
+            assertEquals(first.getNext(), second.getNext());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package utils;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * Runs a loop body for every index in [0, count) on a fork/join pool, splitting the range in halves
+ * until a piece is at most {@code grain} indices long. Without a pool the loop simply runs in place.
+ */
+public class ParallelLoop {
+    public static void forEach(ForkJoinPool pool, int count, int grain, IntConsumer body) {
+        if (pool == null || count <= grain) {
+            for (int i = 0; i < count; i++) {
+                body.accept(i);
+            }
+            return;
+        }
+        pool.invoke(new RangeAction(0, count, Math.max(1, grain), body));
+    }
+
+    @SuppressWarnings("serial") // fork/join tasks are never serialized
+    private static class RangeAction extends RecursiveAction {
+        private final int from;
+        private final int to;
+        private final int grain;
+        private final IntConsumer body;
+
+        RangeAction(int from, int to, int grain, IntConsumer body) {
+            this.from = from;
+            this.to = to;
+            this.grain = grain;
+            this.body = body;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= grain) {
+                for (int i = from; i < to; i++) {
+                    body.accept(i);
+                }
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeAction(from, middle, grain, body), new RangeAction(middle, to, grain, body));
+        }
+    }
+}
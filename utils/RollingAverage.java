@@ -0,0 +1,77 @@
+package utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Average of the last {@code period} values, updated in O(1) with a ring buffer and a running sum.
+ */
+public class RollingAverage {
+    private final int[] window;
+    private long sum = 0;
+    private int size = 0;
+    private int next = 0; // where the next value goes, which is also the oldest value once the window is full
+
+    public RollingAverage(int period) {
+        if (period <= 0) {
+            throw new IllegalArgumentException("Period must be positive: " + period);
+        }
+        window = new int[period];
+    }
+
+    public void add(int value) {
+        if (size == window.length) {
+            sum -= window[next];
+        } else {
+            size++;
+        }
+        window[next] = value;
+        sum += value;
+        next = next + 1 == window.length ? 0 : next + 1;
+    }
+
+    public boolean isFull() {
+        return size == window.length;
+    }
+
+    public int getPeriod() {
+        return window.length;
+    }
+
+    /**
+     * Average of the values in the window, 0 if it is empty.
+     */
+    public double getAverage() {
+        return size == 0 ? 0 : (double) sum / size;
+    }
+
+    public void writeState(DataOutput out) throws IOException {
+        out.writeInt(window.length);
+        out.writeInt(size);
+        out.writeInt(next);
+        out.writeLong(sum);
+        for (int value : window) {
+            out.writeInt(value);
+        }
+    }
+
+    /**
+     * Continues from a state saved by {@link #writeState(DataOutput)} from an average with the same period.
+     */
+    public void readState(DataInput in) throws IOException {
+        int period = in.readInt();
+        if (period != window.length) {
+            throw new IOException("Saved period " + period + " doesn't match the period " + window.length);
+        }
+        size = in.readInt();
+        next = in.readInt();
+        if (size < 0 || size > period || next < 0 || next >= period) {
+            throw new IOException("Bad rolling average state");
+        }
+        sum = in.readLong();
+        for (int i = 0; i < period; i++) {
+            window[i] = in.readInt();
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RollingAverageTest {
+
+    @Test
+    void getAverage() {
+        RollingAverage average = new RollingAverage(3);
+        assertEquals(0, average.getAverage());
+        assertFalse(average.isFull());
+
+        average.add(1);
+        average.add(2);
+        assertEquals(1.5, average.getAverage());
+        average.add(6);
+        assertTrue(average.isFull());
+        assertEquals(3, average.getAverage());
+
+        // the oldest value drops out
+        average.add(10);
+        assertEquals(6, average.getAverage());
+        average.add(10);
+        average.add(10);
+        assertEquals(10, average.getAverage());
+
+        assertThrows(IllegalArgumentException.class, () -> new RollingAverage(0));
+    }
+}
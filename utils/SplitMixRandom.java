@@ -0,0 +1,101 @@
+package utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.random.RandomGenerator;
+
+/**
+ * SplitMix64 generator, the algorithm behind {@link java.util.SplittableRandom}.
+ * One generator seeded for the whole simulation is split into an independent stream for every investor,
+ * which makes runs reproducible without any shared, contended state between streams.
+ * Unlike SplittableRandom its state is accessible, so it can be saved and restored.
+ */
+public class SplitMixRandom implements RandomGenerator {
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private long seed;
+    private long gamma; // always odd
+
+    public SplitMixRandom(long seed) {
+        this(seed, GOLDEN_GAMMA);
+    }
+
+    /**
+     * Recreates a generator from a saved state, see {@link #getSeed()} and {@link #getGamma()}.
+     */
+    public SplitMixRandom(long seed, long gamma) {
+        if ((gamma & 1) == 0) {
+            throw new IllegalArgumentException("Gamma must be odd");
+        }
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Returns a new generator whose values are statistically independent from this one's.
+     */
+    public SplitMixRandom split() {
+        return new SplitMixRandom(nextLong(), mixGamma(nextSeed()));
+    }
+
+    @Override
+    public long nextLong() {
+        return mix64(nextSeed());
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getGamma() {
+        return gamma;
+    }
+
+    public void writeState(DataOutput out) throws IOException {
+        out.writeLong(seed);
+        out.writeLong(gamma);
+    }
+
+    /**
+     * Continues from a state saved by {@link #writeState(DataOutput)}.
+     */
+    public void readState(DataInput in) throws IOException {
+        long seed = in.readLong();
+        long gamma = in.readLong();
+        if ((gamma & 1) == 0) {
+            throw new IOException("Gamma must be odd");
+        }
+        this.seed = seed;
+        this.gamma = gamma;
+    }
+
+    /**
+     * Returns the given generator as a SplitMixRandom, whose state can be saved.
+     */
+    public static SplitMixRandom saveable(RandomGenerator random) {
+        if (!(random instanceof SplitMixRandom splitMixRandom)) {
+            throw new IllegalStateException("Only the state of a SplitMixRandom can be saved, not of "
+                    + random.getClass().getName());
+        }
+        return splitMixRandom;
+    }
+
+    private long nextSeed() {
+        return seed += gamma;
+    }
+
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    private static long mixGamma(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        z = (z ^ (z >>> 33)) | 1L;
+        int n = Long.bitCount(z ^ (z >>> 1));
+        return (n < 24) ? z ^ 0xaaaaaaaaaaaaaaaaL : z;
+    }
+}
@@ -0,0 +1,66 @@
+package utils;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Gives every stock symbol a dense index, so per-stock state can live in plain arrays indexed by symbol.
+ * Filled once when the input is read, indices follow the order in which the stocks were listed.
+ */
+public class SymbolRegistry {
+    public static final int UNKNOWN = -1;
+
+    private final String[] symbols;
+    private final HashMap<String, Integer> indices = new HashMap<>();
+
+    public SymbolRegistry(Collection<String> symbols) {
+        this.symbols = symbols.toArray(new String[0]);
+        for (int i = 0; i < this.symbols.length; i++) {
+            if (indices.put(this.symbols[i], i) != null) {
+                throw new IllegalArgumentException("Duplicate symbol: " + this.symbols[i]);
+            }
+        }
+    }
+
+    public int size() {
+        return symbols.length;
+    }
+
+    public int indexOf(String symbol) {
+        Integer index = indices.get(symbol);
+        return index == null ? UNKNOWN : index;
+    }
+
+    public String getSymbol(int index) {
+        return symbols[index];
+    }
+
+    public String[] getSymbols() {
+        return symbols.clone();
+    }
+
+    /**
+     * Turns per-symbol values into an array indexed by symbol, symbols missing from the map get 0.
+     */
+    public int[] toArray(Map<String, Integer> values) {
+        int[] array = new int[symbols.length];
+        for (Map.Entry<String, Integer> entry : values.entrySet()) {
+            int index = indexOf(entry.getKey());
+            if (index == UNKNOWN) {
+                throw new IllegalArgumentException("Unknown symbol: " + entry.getKey());
+            }
+            array[index] = entry.getValue();
+        }
+        return array;
+    }
+
+    public Map<String, Integer> toMap(int[] values) {
+        Map<String, Integer> map = new LinkedHashMap<>();
+        for (int i = 0; i < symbols.length; i++) {
+            map.put(symbols[i], values[i]);
+        }
+        return map;
+    }
+}